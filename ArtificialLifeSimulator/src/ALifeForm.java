@@ -1,10 +1,11 @@
-import java.util.Random;
-import javafx.scene.shape.Circle;
-
 /**
  * Controls all abstract functions shared by life forms. Holds attributes shared
  * by all life forms. Whenever a life form is created, this class constructor is
  * called.
+ * <p>
+ * Position, velocity and size are held as plain values so that a world can be
+ * simulated without the JavaFX toolkit, the graphics are drawn from these
+ * values by the WorldView class.
  * 
  * @see derived/subclasses of Herbivore and Carnivore for how this abstract
  *      class is utilised using inheritance.
@@ -12,31 +13,92 @@ import javafx.scene.shape.Circle;
 
 public abstract class ALifeForm {
 
-	protected Circle lifeFormBody;
-	protected Circle senseRadius;
+	// Energy above which a life form is ready to breed
+	static final int BREEDING_ENERGY = 2000;
+
 	protected int maxEnergy;
-	protected int age;
+	// Tick of the world's clock at which the life form was 0 seconds old, its
+	// age is worked out from this whenever it is asked for
+	protected long birthTick;
+	protected SimClock clock;
 	protected int energy;
-	protected int xPos;
-	protected int yPos;
+	// Current centre of the life form in world coordinates, updated by move()
+	protected double xPos;
+	protected double yPos;
+	// Position before the last move, so that drawing can be interpolated
+	// between the last two ticks
+	protected double lastXpos;
+	protected double lastYpos;
 	protected int radius;
+	protected int senseRange;
 	protected int flavour;
 	protected boolean isDead;
+	// Whether the energy is above BREEDING_ENERGY, kept up to date whenever
+	// the energy changes
 	protected boolean readyToBreed = false;
 	protected boolean isPoisoned = false;
+	// Set once the world has detected the poison so the outline can be drawn
+	protected boolean markedPoisoned = false;
 	protected boolean isVisable = true;
+	// Set while the life form is asleep or hiding, when it is left out of
+	// sensing and moving until a scheduled event wakes it
+	protected boolean isDormant = false;
 	protected boolean canRandMove = true;
 	protected SimWorld association;
+	// Handle given to the life form by the store holding it
+	protected long handle = -1;
 	protected float intelligenceLvl;
 	protected float dx = -1.5f;
 	protected float dy = -1.5f;
 
-	// Random generator for setting x and y within the bounds of the map
-	Random newRnd = new Random();
+	// Random generator for setting x and y within the bounds of the map, each
+	// life form has its own stream from the world seed
+	SimRandom newRnd;
 
 	// Constructor for a life form, sets up class attributes such as sense
 	// distance and body size
 	ALifeForm(SimWorld w) {
+		newRnd = w.createEntityRandom();
+		spawn(w);
+	}
+
+	// Constructor for a life form read back from a checkpoint, which sets
+	// every field afterwards, so nothing is picked at random and the world's
+	// streams are left alone
+	ALifeForm(SimWorld w, SimRandom rnd) {
+		newRnd = rnd;
+		clock = w.getClock();
+	}
+
+	/**
+	 * Brings a dead life form back into a world as if it had just been
+	 * created, so that it can be reused for a new life form rather than
+	 * allocating another. The life form is given the next random stream of
+	 * the world, exactly as a new life form would be, so reusing it does not
+	 * change how the world runs.
+	 *
+	 * @param w
+	 *            the world the life form is brought back into
+	 * @see takeSpare method in the EntityStore class.
+	 */
+	public void respawn(SimWorld w) {
+		w.reseedEntityRandom(newRnd);
+		this.isDead = false;
+		this.isPoisoned = false;
+		this.markedPoisoned = false;
+		this.isVisable = true;
+		this.isDormant = false;
+		this.canRandMove = true;
+		this.dx = -1.5f;
+		this.dy = -1.5f;
+		this.handle = -1;
+		spawn(w);
+	}
+
+	// Places the life form at a random position away from the world edges and
+	// picks its starting energy, intelligence, age and flavour
+	private void spawn(SimWorld w) {
+		this.clock = w.getClock();
 		int tempX = newRnd.nextInt(w.getWorldWidth());
 		int tempY = newRnd.nextInt(w.getWorldHeight());
 		boolean doStuff = true;
@@ -44,6 +106,8 @@ public abstract class ALifeForm {
 			if (tempX > 45 && tempX < (w.getWorldWidth() - 45) && tempY > 45 && tempY < (w.getWorldHeight() - 45)) {
 				this.xPos = tempX;
 				this.yPos = tempY;
+				this.lastXpos = tempX;
+				this.lastYpos = tempY;
 				doStuff = false;
 			} else {
 				tempX = newRnd.nextInt(w.getWorldWidth());
@@ -52,10 +116,9 @@ public abstract class ALifeForm {
 		}
 
 		this.radius = 15;
-		this.energy = newRnd.nextInt(1000) + 1000;
+		this.senseRange = 100;
+		this.setEnergy(newRnd.nextInt(1000) + 1000);
 		this.maxEnergy = energy;
-		this.lifeFormBody = new Circle(this.xPos, this.yPos, radius);
-		this.senseRadius = new Circle(this.xPos, this.yPos, 100);
 		this.intelligenceLvl = newRnd.nextFloat();
 		this.setAge(newRnd.nextInt(5));
 		this.setFlavour(newRnd.nextInt(300) + 80);
@@ -112,15 +175,14 @@ public abstract class ALifeForm {
 	 * Handles each life forms translation on the simulated 2D map. This occurs
 	 * each frame and is called in the collision detection methods of a world.
 	 * 
-	 * @see collideHerbivores and collideCarnivores methods in the SimWorld
-	 *      class.
+	 * @see senseHerbivore and senseCarnivore methods in the SimWorld class.
 	 */
 	public void move() {
 		// move the lifeforms around the world in their current direction
-		getLifeFormBody().setTranslateX(getLifeFormBody().getTranslateX() + getDx());
-		getLifeFormBody().setTranslateY(getLifeFormBody().getTranslateY() + getDy());
-		getSenseRadius().setTranslateX(getLifeFormBody().getTranslateX());
-		getSenseRadius().setTranslateY(getLifeFormBody().getTranslateY());
+		this.lastXpos = xPos;
+		this.lastYpos = yPos;
+		this.xPos += getDx();
+		this.yPos += getDy();
 	}
 
 	/**
@@ -132,16 +194,16 @@ public abstract class ALifeForm {
 	 */
 	public void expendEnergy(int value) {
 		if (this.isPoisoned) {
-			this.energy -= value * 2;
+			this.setEnergy(energy - value * 2);
 		} else {
-			this.energy -= value;
+			this.setEnergy(energy - value);
 		}
 
 	}
 
 	// handles the lifeforms gain of energy
 	public void gainEnergy(int value) {
-		this.energy += value;
+		this.setEnergy(energy + value);
 	}
 
 	// Start of getters and setters for a lifeform
@@ -153,11 +215,11 @@ public abstract class ALifeForm {
 		this.isDead = isDead;
 	}
 
-	public int getYpos() {
+	public double getYpos() {
 		return yPos;
 	}
 
-	public void setYpos(int ypos) {
+	public void setYpos(double ypos) {
 		yPos = ypos;
 	}
 
@@ -181,40 +243,51 @@ public abstract class ALifeForm {
 		return energy;
 	}
 
+	// Every change of energy goes through here, so whether the life form is
+	// ready to breed never needs to be checked separately
 	public void setEnergy(int Energy) {
 		energy = Energy;
+		readyToBreed = energy > BREEDING_ENERGY;
 	}
 
-	public int getXpos() {
-		return xPos;
+	public double getLastXpos() {
+		return lastXpos;
 	}
 
-	public void setXpos(int xpos) {
-		xPos = xpos;
+	public double getLastYpos() {
+		return lastYpos;
 	}
 
-	public int getYPos() {
-		return yPos;
+	public void setLastXpos(double lastXpos) {
+		this.lastXpos = lastXpos;
 	}
 
-	public void setYPos(int ypos) {
-		yPos = ypos;
+	public void setLastYpos(double lastYpos) {
+		this.lastYpos = lastYpos;
+	}
+
+	public double getXpos() {
+		return xPos;
 	}
 
-	public Circle getLifeFormBody() {
-		return lifeFormBody;
+	public void setXpos(double xpos) {
+		xPos = xpos;
+	}
+
+	public double getYPos() {
+		return yPos;
 	}
 
-	public void setLifeFormBody(Circle lifeFormBody) {
-		this.lifeFormBody = lifeFormBody;
+	public void setYPos(double ypos) {
+		yPos = ypos;
 	}
 
-	public Circle getSenseRadius() {
-		return senseRadius;
+	public int getSenseRange() {
+		return senseRange;
 	}
 
-	public void setSenseRadius(Circle senseRadius) {
-		this.senseRadius = senseRadius;
+	public void setSenseRange(int senseRange) {
+		this.senseRange = senseRange;
 	}
 
 	public void setWorld(SimWorld w) {
@@ -245,6 +318,14 @@ public abstract class ALifeForm {
 		this.isVisable = isVisable;
 	}
 
+	public boolean isDormant() {
+		return isDormant;
+	}
+
+	public void setDormant(boolean isDormant) {
+		this.isDormant = isDormant;
+	}
+
 	public boolean isCanRandMove() {
 		return canRandMove;
 	}
@@ -261,12 +342,16 @@ public abstract class ALifeForm {
 		this.isPoisoned = isPoisoned;
 	}
 
-	public boolean isReadyToBreed() {
-		return readyToBreed;
+	public boolean isMarkedPoisoned() {
+		return markedPoisoned;
 	}
 
-	public void setReadyToBreed(boolean readyToBreed) {
-		this.readyToBreed = readyToBreed;
+	public void setMarkedPoisoned(boolean markedPoisoned) {
+		this.markedPoisoned = markedPoisoned;
+	}
+
+	public boolean isReadyToBreed() {
+		return readyToBreed;
 	}
 
 	public int getMaxEnergy() {
@@ -285,18 +370,36 @@ public abstract class ALifeForm {
 		this.intelligenceLvl = intelligenceLvl;
 	}
 
+	// Age in whole simulated seconds, going up by one at the start of each
+	// second of the world's clock
 	public int getAge() {
-		return age;
+		return clock.getSeconds() - (int) (birthTick / SimClock.TICKS_PER_SECOND);
 	}
 
 	public void setAge(int age) {
-		this.age = age;
+		this.birthTick = (long) (clock.getSeconds() - age) * SimClock.TICKS_PER_SECOND;
+	}
+
+	public long getBirthTick() {
+		return birthTick;
+	}
+
+	public void setBirthTick(long birthTick) {
+		this.birthTick = birthTick;
 	}
 
 	public int getFlavour() {
 		return flavour;
 	}
 
+	public long getHandle() {
+		return handle;
+	}
+
+	public void setHandle(long handle) {
+		this.handle = handle;
+	}
+
 	public void setFlavour(int flavour) {
 		this.flavour = flavour;
 	}
@@ -0,0 +1,59 @@
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.scene.image.Image;
+import javafx.scene.paint.ImagePattern;
+
+/**
+ * Holds the images used to draw worlds, so that each image in the resources
+ * folder is read and decoded only once, however many entities show it and
+ * however many worlds are opened. Each image is kept as the ImagePattern used
+ * to fill circles with it. A pattern never changes, so one pattern is shared
+ * by every circle showing that image.
+ * <p>
+ * Images are loaded in the background. preload is called when the application
+ * starts so that they are usually ready before the first world is shown.
+ *
+ * @see WorldView class which draws with these images.
+ */
+public final class AssetCache {
+	// Pattern for each image, keyed by its url in the resources folder
+	private static final ConcurrentHashMap<String, ImagePattern> patterns = new ConcurrentHashMap<String, ImagePattern>();
+
+	// Only static methods, so no instances are made
+	private AssetCache() {
+	}
+
+	/**
+	 * Starts loading images in the background, returning straight away.
+	 *
+	 * @param imageURLs
+	 *            urls of the images in the resources folder
+	 */
+	public static void preload(String... imageURLs) {
+		for (String imageURL : imageURLs) {
+			getPattern(imageURL);
+		}
+	}
+
+	/**
+	 * Returns the pattern filling a shape with the image at the given url,
+	 * stretched to the bounds of the shape. The image is loaded the first
+	 * time it is asked for, and shapes filled with it are drawn once it has
+	 * loaded.
+	 *
+	 * @param imageURL
+	 *            url of the image in the resources folder
+	 * @return the pattern shared by everything showing the image
+	 */
+	public static ImagePattern getPattern(String imageURL) {
+		ImagePattern pattern = patterns.get(imageURL);
+		if (pattern == null) {
+			pattern = new ImagePattern(new Image(imageURL, true), 0, 0, 1, 1, true);
+			ImagePattern existing = patterns.putIfAbsent(imageURL, pattern);
+			if (existing != null) {
+				pattern = existing;
+			}
+		}
+		return pattern;
+	}
+
+}
@@ -0,0 +1,61 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs a world from the command line without any graphics, for looking at
+ * how populations change over long periods of simulated time. The world is
+ * fast forwarded one simulated minute at a time and the number of carnivores
+ * and herbivores is printed after each minute.
+ * <p>
+ * Usage: BatchRun width height carnivores herbivores obstacles food minutes
+ * [seed] [threads] [telemetry]
+ * <p>
+ * If a telemetry CSV file is given, the populations at every tick are
+ * streamed into it and into a binary file alongside it.
+ * <p>
+ * Runs given the same seed always print the same populations, whatever the
+ * number of threads.
+ *
+ * @see fastForward method in the SimWorld class.
+ */
+public class BatchRun {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 7) {
+			System.out.println(
+					"Usage: BatchRun width height carnivores herbivores obstacles food minutes [seed] [threads] [telemetry]");
+			return;
+		}
+		// Create the world from the parameters given
+		SimWorld world = new SimWorld(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+				Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+				Integer.parseInt(args[5]));
+		int minutes = Integer.parseInt(args[6]);
+		if (args.length > 7) {
+			world.setSeed(Long.parseLong(args[7]));
+		}
+		if (args.length > 8) {
+			world.setThreads(Integer.parseInt(args[8]));
+		}
+		world.createWorld();
+		System.out.println("seed " + world.getSeed());
+		if (args.length > 9) {
+			File csv = new File(args[9]);
+			world.setTelemetry(new TelemetrySink(csv, TelemetrySink.binaryFileFor(csv), 1));
+		}
+
+		long startTime = System.currentTimeMillis();
+		System.out.println("minute,carnivores,herbivores");
+		for (int i = 1; i <= minutes; i++) {
+			world.fastForward(60L * SimClock.TICKS_PER_SECOND);
+			System.out.println(i + "," + world.getNumOfCarnivores() + "," + world.getNumOfHerbivores());
+		}
+		long elapsed = System.currentTimeMillis() - startTime;
+		System.out.println("Ran " + world.getClock().getTick() + " ticks in " + elapsed + "ms");
+		if (world.getTelemetry() != null) {
+			world.getTelemetry().close();
+		}
+		world.close();
+	}
+
+}
@@ -0,0 +1,151 @@
+/**
+ * The part of a world shown on screen, for worlds bigger than the window
+ * showing them. The camera is a rectangle of the world, given by the world
+ * position of its top left corner and a scale of screen pixels to world
+ * pixels, which can be panned and zoomed.
+ * <p>
+ * The camera never moves off the world: when the whole world fits in the
+ * window it is centred, otherwise the edges of the camera are kept within the
+ * edges of the world.
+ *
+ * @see CanvasWorldView class which draws through a camera.
+ */
+public class Camera {
+	// Most a world is magnified
+	static final double MAX_SCALE = 4;
+
+	private double worldWidth;
+	private double worldHeight;
+	// Size of the window in screen pixels
+	private double viewWidth;
+	private double viewHeight;
+	// World position of the top left corner of the window
+	private double x = 0;
+	private double y = 0;
+	// Screen pixels for each world pixel
+	private double scale = 1;
+
+	// Constructor for a camera over a world, shown at full size from its top
+	// left corner
+	Camera(double worldWidth, double worldHeight) {
+		this.worldWidth = worldWidth;
+		this.worldHeight = worldHeight;
+	}
+
+	/**
+	 * Changes the size of the window, keeping the same point of the world in
+	 * its centre.
+	 *
+	 * @param width
+	 *            width of the window in screen pixels
+	 * @param height
+	 *            height of the window in screen pixels
+	 */
+	public void setViewSize(double width, double height) {
+		double centreX = x + viewWidth / scale / 2;
+		double centreY = y + viewHeight / scale / 2;
+		this.viewWidth = width;
+		this.viewHeight = height;
+		this.scale = Math.max(getMinScale(), scale);
+		x = centreX - viewWidth / scale / 2;
+		y = centreY - viewHeight / scale / 2;
+		clamp();
+	}
+
+	/**
+	 * Moves the camera by a distance on screen, as when the world is dragged
+	 * by the mouse.
+	 *
+	 * @param screenDx
+	 *            screen pixels to move the world right by
+	 * @param screenDy
+	 *            screen pixels to move the world down by
+	 */
+	public void pan(double screenDx, double screenDy) {
+		x -= screenDx / scale;
+		y -= screenDy / scale;
+		clamp();
+	}
+
+	/**
+	 * Zooms in or out about a point on screen, which stays over the same point
+	 * of the world.
+	 *
+	 * @param factor
+	 *            how much to multiply the scale by, above 1 to zoom in
+	 * @param screenX
+	 *            x position on screen to zoom about
+	 * @param screenY
+	 *            y position on screen to zoom about
+	 */
+	public void zoomAt(double factor, double screenX, double screenY) {
+		double worldX = toWorldX(screenX);
+		double worldY = toWorldY(screenY);
+		scale = Math.max(getMinScale(), Math.min(MAX_SCALE, scale * factor));
+		x = worldX - screenX / scale;
+		y = worldY - screenY / scale;
+		clamp();
+	}
+
+	// Zooms out to show the whole world
+	public void showAll() {
+		scale = getMinScale();
+		clamp();
+	}
+
+	// Smallest scale, at which the whole world just fits in the window, or
+	// full size for worlds smaller than the window
+	public double getMinScale() {
+		if (viewWidth <= 0 || viewHeight <= 0) {
+			return 1;
+		}
+		return Math.min(1, Math.min(viewWidth / worldWidth, viewHeight / worldHeight));
+	}
+
+	// Keeps the window over the world, centring the world along any side it
+	// does not fill
+	private void clamp() {
+		double shownWidth = viewWidth / scale;
+		double shownHeight = viewHeight / scale;
+		if (shownWidth >= worldWidth) {
+			x = (worldWidth - shownWidth) / 2;
+		} else {
+			x = Math.max(0, Math.min(worldWidth - shownWidth, x));
+		}
+		if (shownHeight >= worldHeight) {
+			y = (worldHeight - shownHeight) / 2;
+		} else {
+			y = Math.max(0, Math.min(worldHeight - shownHeight, y));
+		}
+	}
+
+	public double toWorldX(double screenX) {
+		return x + screenX / scale;
+	}
+
+	public double toWorldY(double screenY) {
+		return y + screenY / scale;
+	}
+
+	// Start of getters for the camera, the edges of the world shown
+	public double getMinX() {
+		return x;
+	}
+
+	public double getMinY() {
+		return y;
+	}
+
+	public double getMaxX() {
+		return x + viewWidth / scale;
+	}
+
+	public double getMaxY() {
+		return y + viewHeight / scale;
+	}
+
+	public double getScale() {
+		return scale;
+	}
+
+}
@@ -0,0 +1,448 @@
+import java.util.Arrays;
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.event.EventHandler;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.ImagePattern;
+import javafx.stage.Screen;
+import javafx.stage.Stage;
+
+/**
+ * Draws a SimWorld onto a single Canvas. Unlike WorldView no node is kept for
+ * each entity, at each frame the whole world is drawn again in one pass. The
+ * scene only ever holds the canvas and the menus, so the number of entities
+ * shown does not change the work done by the scene graph.
+ * <p>
+ * The world is run on a SimulationThread rather than by a timeline, and each
+ * frame draws the latest snapshot it has published. Life forms are drawn
+ * between their positions at the last two ticks, by how far the world has got
+ * towards its next tick, so they move smoothly at any rate. A slow tick no
+ * longer holds up frames, and a slow frame no longer slows down the world.
+ * <p>
+ * The window shows the world through a Camera, so worlds can be far bigger
+ * than the screen. Dragging the world pans it, scrolling zooms about the
+ * mouse and a double click zooms out to show the whole world. Only entities
+ * in the window are drawn, found through spatial grids rather than by
+ * checking every entity. Once zoomed out far enough that life forms would be
+ * a few pixels across, they are drawn as the density of each kind instead.
+ * <p>
+ * Otherwise looks the same as WorldView, including developer mode and
+ * natural disasters.
+ *
+ * @see WorldView class for the version using one node per entity.
+ */
+public class CanvasWorldView implements WorldRenderer {
+	// Scale below which life forms are drawn as densities
+	private static final double DENSITY_SCALE = 0.25;
+	// Size on screen of each square a density is shown for
+	private static final double DENSITY_CELL = 6;
+	// Side of the cells of the grids used to find life forms on screen
+	private static final double CULL_CELL_SIZE = 128;
+	// Furthest a life form can be drawn from its position at the last tick
+	private static final double MOVE_MARGIN = 2;
+
+	private SimWorld world;
+	private Canvas canvas;
+	private Camera camera;
+	private SimulationThread simulation;
+	private AnimationTimer frameTimer;
+	// Last snapshot drawn, and whether it was drawn at its final positions,
+	// so that frames are only drawn again when something has changed
+	private WorldSnapshot drawnSnapshot;
+	private boolean drawnSettled = false;
+	// Grids of the life forms in the snapshot last drawn, built once for
+	// each snapshot, and the results of queries on any grid
+	private SpatialGrid carnivoreGrid;
+	private SpatialGrid herbivoreGrid;
+	private WorldSnapshot griddedSnapshot;
+	private SpatialGrid.Query query = new SpatialGrid.Query();
+	// Life forms in each square when drawing densities, reused for each kind
+	private int[] density = new int[0];
+	// Last position of the mouse while dragging the world
+	private double dragX;
+	private double dragY;
+
+	// Constructor for the view of a world
+	CanvasWorldView(SimWorld world) {
+		this.world = world;
+	}
+
+	/**
+	 * Adds the canvas and the menus to a Group and creates the scene for the
+	 * GUI. The window is the size of the world, or of the screen for worlds
+	 * bigger than it, and can be resized. Also starts the thread which runs
+	 * the world, paused, and the timer drawing the latest snapshot of it at
+	 * each frame.
+	 *
+	 * @param primaryStage
+	 *            the stage to set the scene containing the simulation upon.
+	 * @param pane
+	 *            a vertical box used to handle the addition of the menubar and
+	 *            menu items onto the scene
+	 * @param hpane
+	 *            another vertical box to hold the toolbar and the toolbar
+	 *            buttons.
+	 */
+	@Override
+	public void runWorldCycles(Stage primaryStage, VBox pane, VBox hpane) {
+		Rectangle2D screen = Screen.getPrimary().getVisualBounds();
+		double width = Math.min(world.getWorldWidth(), screen.getWidth());
+		double height = Math.min(world.getWorldHeight(), screen.getHeight());
+
+		camera = new Camera(world.getWorldWidth(), world.getWorldHeight());
+		carnivoreGrid = new SpatialGrid(world.getWorldWidth(), world.getWorldHeight(), CULL_CELL_SIZE);
+		herbivoreGrid = new SpatialGrid(world.getWorldWidth(), world.getWorldHeight(), CULL_CELL_SIZE);
+
+		canvas = new Canvas(width, height);
+		Group root = new Group();
+		root.getChildren().addAll(canvas, hpane, pane);
+		Scene scene = new Scene(root, width, height);
+		// The canvas fills the window, and the camera shows as much of the
+		// world as fits in it
+		canvas.widthProperty().bind(scene.widthProperty());
+		canvas.heightProperty().bind(scene.heightProperty());
+		InvalidationListener resized = new InvalidationListener() {
+			@Override
+			public void invalidated(Observable o) {
+				camera.setViewSize(canvas.getWidth(), canvas.getHeight());
+				redraw();
+			}
+		};
+		canvas.widthProperty().addListener(resized);
+		canvas.heightProperty().addListener(resized);
+		camera.setViewSize(width, height);
+		addCameraControls();
+
+		simulation = new SimulationThread(world);
+		syncWorld();
+		frameTimer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				syncWorld();
+			}
+		};
+		frameTimer.start();
+		// Set up and show the world stage
+		primaryStage.setTitle("Artificial Life Simulator");
+		primaryStage.setScene(scene);
+		primaryStage.setHeight(height);
+		primaryStage.setWidth(width);
+		primaryStage.setResizable(true);
+		primaryStage.setX(Math.max(screen.getMinX(), Math.min(world.getWorldWidth() / 3, screen.getMaxX() - width)));
+		primaryStage.show();
+	}
+
+	// Pans the camera when the world is dragged, zooms it when the mouse is
+	// scrolled and shows the whole world on a double click
+	private void addCameraControls() {
+		canvas.setOnMousePressed(new EventHandler<MouseEvent>() {
+			@Override
+			public void handle(MouseEvent e) {
+				dragX = e.getX();
+				dragY = e.getY();
+			}
+		});
+		canvas.setOnMouseDragged(new EventHandler<MouseEvent>() {
+			@Override
+			public void handle(MouseEvent e) {
+				camera.pan(e.getX() - dragX, e.getY() - dragY);
+				dragX = e.getX();
+				dragY = e.getY();
+				redraw();
+			}
+		});
+		canvas.setOnScroll(new EventHandler<ScrollEvent>() {
+			@Override
+			public void handle(ScrollEvent e) {
+				camera.zoomAt(Math.pow(1.002, e.getDeltaY()), e.getX(), e.getY());
+				redraw();
+			}
+		});
+		canvas.setOnMouseClicked(new EventHandler<MouseEvent>() {
+			@Override
+			public void handle(MouseEvent e) {
+				if (e.getClickCount() == 2) {
+					camera.showAll();
+					redraw();
+				}
+			}
+		});
+	}
+
+	// Makes the next frame draw the world again even if it has not changed,
+	// for when the camera has moved
+	private void redraw() {
+		drawnSnapshot = null;
+	}
+
+	/**
+	 * Draws the part of the latest snapshot of the world in the window onto
+	 * the canvas: the background (the wasteland once a disaster has happened),
+	 * then obstacles, food and dens, then sense radii in developer mode, then
+	 * the life forms and lastly the target of a disaster counting down.
+	 * Nothing is drawn if the frame would look the same as the last one.
+	 */
+	@Override
+	public void syncWorld() {
+		WorldSnapshot snapshot = simulation.getLatest();
+		double alpha = snapshot.alphaAt(System.nanoTime());
+		if (snapshot == drawnSnapshot && drawnSettled) {
+			return;
+		}
+		drawnSnapshot = snapshot;
+		drawnSettled = alpha >= 1;
+		if (snapshot != griddedSnapshot) {
+			snapshot.getCarnivores().buildGrid(carnivoreGrid);
+			snapshot.getHerbivores().buildGrid(herbivoreGrid);
+			griddedSnapshot = snapshot;
+		}
+
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.setGlobalAlpha(1);
+		// Anything around a world smaller than the window is left black
+		gc.setFill(Color.BLACK);
+		gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		gc.save();
+		// Everything else is drawn in world positions
+		gc.scale(camera.getScale(), camera.getScale());
+		gc.translate(-camera.getMinX(), -camera.getMinY());
+		double minX = Math.max(0, camera.getMinX());
+		double minY = Math.max(0, camera.getMinY());
+		double maxX = Math.min(world.getWorldWidth(), camera.getMaxX());
+		double maxY = Math.min(world.getWorldHeight(), camera.getMaxY());
+		gc.setFill(AssetCache.getPattern(snapshot.isWasteland() ? WorldView.wastelandURL : WorldView.grassURL));
+		gc.fillRect(minX, minY, maxX - minX, maxY - minY);
+
+		boolean dense = camera.getScale() < DENSITY_SCALE;
+		drawStatic(gc, snapshot, dense, minX, minY, maxX, maxY);
+		if (dense) {
+			drawDensity(gc, snapshot.getHerbivores(), herbivoreGrid, Color.WHITESMOKE, alpha, minX, minY, maxX, maxY);
+			drawDensity(gc, snapshot.getCarnivores(), carnivoreGrid, Color.ORANGERED, alpha, minX, minY, maxX, maxY);
+		} else {
+			drawLifeForms(gc, snapshot, alpha, minX, minY, maxX, maxY);
+		}
+
+		// Paint the target of a disaster while it counts down
+		if (snapshot.isCountingDown()) {
+			gc.setGlobalAlpha(0.3);
+			gc.setFill(Color.CRIMSON);
+			fillCircle(gc, world.getWorldWidth() / 2, world.getWorldHeight() / 2, world.getWorldHeight() / 2);
+			gc.setGlobalAlpha(1);
+		}
+		gc.restore();
+	}
+
+	// Draws the obstacles, food and dens in the window. Their positions never
+	// change, so they are found through the grids of the world itself. When
+	// zoomed out they are drawn in plain colours rather than with images
+	private void drawStatic(GraphicsContext gc, WorldSnapshot snapshot, boolean dense, double minX, double minY,
+			double maxX, double maxY) {
+		gc.setFill(dense ? Color.DARKGREEN : AssetCache.getPattern(WorldView.obstacleURL));
+		int found = world.getObstacleGrid().queryRectangle(minX, minY, maxX, maxY, query);
+		for (int k = 0; k < found; k++) {
+			Obstacle obstacle = world.getObstacleArray().get(query.getResult()[k]);
+			fillCircle(gc, obstacle.getxPos(), obstacle.getyPos(), obstacle.getCollisionRadius());
+		}
+		// Food that has been eaten is not drawn until it grows back
+		ImagePattern foodImage = AssetCache.getPattern(WorldView.foodURL);
+		ImagePattern poisonousFoodImage = AssetCache.getPattern(WorldView.pfoodURL);
+		found = world.getFoodGrid().queryRectangle(minX, minY, maxX, maxY, query);
+		for (int k = 0; k < found; k++) {
+			int i = query.getResult()[k];
+			if (snapshot.isFoodCanBeEaten(i)) {
+				FoodSource food = world.getFoodArray().get(i);
+				if (dense) {
+					gc.setFill(food.isPoisonous() ? Color.PURPLE : Color.YELLOWGREEN);
+				} else {
+					gc.setFill(food.isPoisonous() ? poisonousFoodImage : foodImage);
+				}
+				fillCircle(gc, food.getxPos(), food.getyPos(), food.getRadius());
+			}
+		}
+		gc.setFill(dense ? Color.SADDLEBROWN : AssetCache.getPattern(WorldView.denURL));
+		found = world.getDenGrid().queryRectangle(minX, minY, maxX, maxY, query);
+		for (int k = 0; k < found; k++) {
+			Den den = world.getDenArray().get(query.getResult()[k]);
+			fillCircle(gc, den.getxPos(), den.getyPos(), den.getBodyRadius());
+		}
+	}
+
+	// Draws the life forms in the window, with their sense radii first in
+	// developer mode
+	private void drawLifeForms(GraphicsContext gc, WorldSnapshot snapshot, double alpha, double minX, double minY,
+			double maxX, double maxY) {
+		WorldSnapshot.Animals carnivores = snapshot.getCarnivores();
+		WorldSnapshot.Animals herbivores = snapshot.getHerbivores();
+		// Show the sense radius of each life form in developer mode
+		if (snapshot.isToggleDev()) {
+			gc.setGlobalAlpha(0.3);
+			gc.setFill(Color.CYAN);
+			int found = queryOnScreen(carnivoreGrid, carnivores.getLargestSenseRange(), minX, minY, maxX, maxY);
+			for (int k = 0; k < found; k++) {
+				int i = query.getResult()[k];
+				fillCircle(gc, carnivores.xAt(i, alpha), carnivores.yAt(i, alpha), carnivores.getSenseRange(i));
+			}
+			gc.setFill(Color.DARKVIOLET);
+			found = queryOnScreen(herbivoreGrid, herbivores.getLargestSenseRange(), minX, minY, maxX, maxY);
+			for (int k = 0; k < found; k++) {
+				int i = query.getResult()[k];
+				fillCircle(gc, herbivores.xAt(i, alpha), herbivores.yAt(i, alpha), herbivores.getSenseRange(i));
+			}
+			gc.setGlobalAlpha(1);
+		}
+
+		gc.setFill(AssetCache.getPattern(WorldView.wolfURL));
+		int found = queryOnScreen(carnivoreGrid, 0, minX, minY, maxX, maxY);
+		for (int k = 0; k < found; k++) {
+			drawLifeForm(gc, carnivores, query.getResult()[k], alpha);
+		}
+		gc.setFill(AssetCache.getPattern(WorldView.sheepURL));
+		found = queryOnScreen(herbivoreGrid, 0, minX, minY, maxX, maxY);
+		for (int k = 0; k < found; k++) {
+			drawLifeForm(gc, herbivores, query.getResult()[k], alpha);
+		}
+	}
+
+	// Finds the life forms in a grid that could be drawn in the window,
+	// allowing for how far they may have moved since the grid was built and
+	// for anything drawn around them
+	private int queryOnScreen(SpatialGrid grid, double reach, double minX, double minY, double maxX, double maxY) {
+		double margin = MOVE_MARGIN + reach;
+		return grid.queryRectangle(minX - margin, minY - margin, maxX + margin, maxY + margin, query);
+	}
+
+	// Draws the life forms of one kind in the window as the number of them in
+	// each small square of the screen, the more there are the brighter the
+	// square. Herbivores inside a den are not counted
+	private void drawDensity(GraphicsContext gc, WorldSnapshot.Animals animals, SpatialGrid grid, Color colour,
+			double alpha, double minX, double minY, double maxX, double maxY) {
+		double cell = DENSITY_CELL / camera.getScale();
+		int columns = (int) Math.ceil((maxX - minX) / cell) + 1;
+		int rows = (int) Math.ceil((maxY - minY) / cell) + 1;
+		if (density.length < columns * rows) {
+			density = new int[columns * rows];
+		}
+		Arrays.fill(density, 0, columns * rows, 0);
+		int found = queryOnScreen(grid, 0, minX, minY, maxX, maxY);
+		for (int k = 0; k < found; k++) {
+			int i = query.getResult()[k];
+			if (!animals.isVisible(i)) {
+				continue;
+			}
+			int column = (int) ((animals.xAt(i, alpha) - minX) / cell);
+			int row = (int) ((animals.yAt(i, alpha) - minY) / cell);
+			if (column >= 0 && column < columns && row >= 0 && row < rows) {
+				density[row * columns + column]++;
+			}
+		}
+		gc.setFill(colour);
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				int count = density[row * columns + column];
+				if (count > 0) {
+					gc.setGlobalAlpha(Math.min(1, 0.3 + 0.1 * count));
+					gc.fillRect(minX + column * cell, minY + row * cell, cell, cell);
+				}
+			}
+		}
+		gc.setGlobalAlpha(1);
+	}
+
+	// Draws a single life form with the current fill, herbivores inside a den
+	// are not drawn
+	private void drawLifeForm(GraphicsContext gc, WorldSnapshot.Animals animals, int i, double alpha) {
+		if (!animals.isVisible(i)) {
+			return;
+		}
+		double x = animals.xAt(i, alpha);
+		double y = animals.yAt(i, alpha);
+		double radius = animals.getRadius(i);
+		fillCircle(gc, x, y, radius);
+		// Encircle the life form in red once its poison has been detected
+		if (animals.isMarkedPoisoned(i)) {
+			gc.setStroke(Color.DARKRED);
+			gc.setLineWidth(2);
+			gc.strokeOval(x - radius, y - radius, radius * 2, radius * 2);
+		}
+	}
+
+	// Fills a circle with the current fill, image fills are stretched to the
+	// bounds of the circle
+	private void fillCircle(GraphicsContext gc, double x, double y, double radius) {
+		gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+	}
+
+	/**
+	 * Does nothing, as disasters are drawn along with the rest of the world
+	 * by syncWorld.
+	 *
+	 * @see countDownDisaster in the SimWorld class.
+	 */
+	@Override
+	public void showDisaster() {
+	}
+
+	@Override
+	public void play() {
+		simulation.play();
+	}
+
+	@Override
+	public void pause() {
+		simulation.pause();
+	}
+
+	// Stops the world's thread, waiting for its tick to finish, and the timer
+	// drawing it
+	@Override
+	public void stop() {
+		simulation.stop();
+		frameTimer.stop();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return simulation.isRunning();
+	}
+
+	@Override
+	public double getRate() {
+		return simulation.getRate();
+	}
+
+	@Override
+	public void setRate(double rate) {
+		simulation.setRate(rate);
+	}
+
+	// The task is run on the world's thread and the snapshot published after
+	// it is drawn at the next frame
+	@Override
+	public void runOnWorld(Runnable task) {
+		simulation.submit(task);
+	}
+
+	// Start of getters and setters for CanvasWorldView
+	@Override
+	public SimWorld getWorld() {
+		return world;
+	}
+
+	public SimulationThread getSimulation() {
+		return simulation;
+	}
+
+	public Camera getCamera() {
+		return camera;
+	}
+
+}
@@ -0,0 +1,119 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Checks from the command line that a world saved to a checkpoint carries on
+ * exactly as it would have done. A seeded world is run for a while and saved,
+ * the checkpoint is loaded back, and the world loaded must save to the same
+ * bytes. Both worlds are then run on for as long again and saved, and those
+ * checkpoints must hold the same bytes too. Any state left out of a
+ * checkpoint, such as a new field of a life form, shows up as a difference.
+ * <p>
+ * A journal is then recorded while the world runs on with inputs from the
+ * user, and replayed from the checkpoint it was started on. Seeking the
+ * replay to the last tick, and again after seeking back, must give the same
+ * checkpoint as the world recorded. Runs of over ten minutes also go through
+ * the keyframes kept by the replay.
+ * <p>
+ * Usage: CheckpointCheck [seed] [seconds]
+ * <p>
+ * Prints which check failed, if any, and exits with status 1.
+ *
+ * @see WorldCheckpoint class for the checkpoints being checked.
+ */
+public class CheckpointCheck {
+
+	public static void main(String[] args) throws IOException {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		long ticks = (args.length > 1 ? Long.parseLong(args[1]) : 60) * SimClock.TICKS_PER_SECOND;
+
+		SimWorld world = new SimWorld(3000, 2000, 100, 600, 100, 300);
+		world.setSeed(seed);
+		world.createWorld();
+		world.fastForward(ticks);
+
+		File saved = File.createTempFile("CheckpointCheck", ".alc");
+		File resaved = File.createTempFile("CheckpointCheck", ".alc");
+		try {
+			WorldCheckpoint.save(world, saved);
+			SimWorld loaded = WorldCheckpoint.load(saved);
+			WorldCheckpoint.save(loaded, resaved);
+			check(saved, resaved, "the world loaded saves as it was saved");
+
+			// Run both on and save them again
+			world.fastForward(ticks);
+			loaded.fastForward(ticks);
+			WorldCheckpoint.save(world, saved);
+			WorldCheckpoint.save(loaded, resaved);
+			check(saved, resaved, "the world loaded runs on as the world saved");
+			loaded.close();
+
+			checkReplay(world, ticks, saved, resaved);
+		} finally {
+			world.close();
+			saved.delete();
+			resaved.delete();
+		}
+	}
+
+	// Records a journal of the world running on with inputs, and checks a
+	// replay of it reaches the state the world was saved in
+	private static void checkReplay(SimWorld world, long ticks, File saved, File resaved) throws IOException {
+		File start = File.createTempFile("CheckpointCheck", ".alc");
+		File journal = EventJournal.fileFor(start);
+		try {
+			WorldCheckpoint.save(world, start);
+			world.setJournal(new EventJournal(journal, world.getSeed(), world.getClock().getTick()));
+			long startTick = world.getClock().getTick();
+			for (long t = 0; t < ticks; t++) {
+				// Inputs spread over the run, as a user would give them
+				if (t % 500 == 0) {
+					world.queueInput(EventJournal.ADD_HERBIVORE, 0);
+				}
+				if (t % 700 == 0) {
+					world.queueInput(EventJournal.ADD_CARNIVORE, 0);
+				}
+				if (t % 1100 == 0) {
+					world.queueInput(EventJournal.REMOVE_CARNIVORE, 0);
+				}
+				if (t == ticks / 4) {
+					world.queueInput(EventJournal.SET_BREEDING, 1);
+				}
+				if (t == ticks / 2) {
+					world.queueInput(EventJournal.TRIGGER_DISASTER, 0);
+				}
+				if (t == ticks * 3 / 4) {
+					world.applyInput(EventJournal.EDIT_HERBIVORES, 0);
+				}
+				world.runCycle();
+			}
+			long endTick = world.getClock().getTick();
+			WorldCheckpoint.save(world, saved);
+			world.getJournal().close();
+			world.setJournal(null);
+
+			Replay replay = new Replay(start, EventJournal.read(journal));
+			WorldCheckpoint.save(replay.seek(endTick), resaved);
+			check(saved, resaved, "the journal replays to the state recorded");
+			replay.seek(startTick + ticks / 3);
+			WorldCheckpoint.save(replay.seek(endTick), resaved);
+			check(saved, resaved, "the journal replays to the same state after seeking back");
+			replay.getWorld().close();
+		} finally {
+			start.delete();
+			journal.delete();
+		}
+	}
+
+	// Stops with an error unless two checkpoint files hold the same bytes
+	static void check(File expected, File actual, String what) throws IOException {
+		if (!Arrays.equals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()))) {
+			System.out.println("Failed: " + what);
+			System.exit(1);
+		}
+		System.out.println("Passed: " + what);
+	}
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Times the forms of the collision test from the command line. Random circles
+ * the size of those in a world are tested against each other with the old
+ * Math.pow test, the single pair test and the batch test of the collision
+ * kernel, and the time taken for each pair is printed. All three tests must
+ * agree on every pair or the benchmark stops.
+ * <p>
+ * Usage: CollisionBenchmark [circles] [rounds] [seed]
+ *
+ * @see CollisionKernel class for the tests being timed.
+ */
+public class CollisionBenchmark {
+	// Side of the square the circles are placed in
+	private static final double AREA_SIZE = 1000;
+
+	public static void main(String[] args) {
+		int circles = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+		// Place circles with radii between a body radius and a sense radius
+		SimRandom rnd = new SimRandom(seed);
+		double[] xs = new double[circles];
+		double[] ys = new double[circles];
+		double[] rs = new double[circles];
+		for (int i = 0; i < circles; i++) {
+			xs[i] = rnd.nextDouble() * AREA_SIZE;
+			ys[i] = rnd.nextDouble() * AREA_SIZE;
+			rs[i] = 15 + rnd.nextDouble() * 85;
+		}
+		int[] hits = new int[circles];
+		long pairs = (long) circles * circles;
+
+		// Check the three tests give the same answer for every pair
+		for (int i = 0; i < circles; i++) {
+			int found = CollisionKernel.overlapsBatch(xs[i], ys[i], rs[i], xs, ys, rs, 0, circles, hits, 0);
+			int next = 0;
+			for (int j = 0; j < circles; j++) {
+				boolean old = powOverlaps(xs[i], ys[i], rs[i], xs[j], ys[j], rs[j]);
+				boolean kernel = CollisionKernel.overlaps(xs[i], ys[i], rs[i], xs[j], ys[j], rs[j]);
+				boolean batch = next < found && hits[next] == j;
+				if (batch) {
+					next++;
+				}
+				if (old != kernel || old != batch) {
+					System.out.println("Tests disagree on circles " + i + " and " + j);
+					return;
+				}
+			}
+		}
+		System.out.println("All tests agree on " + pairs + " pairs");
+
+		// Run each test several times so the later rounds are timed after the
+		// JIT compiler has compiled it
+		for (int round = 1; round <= rounds; round++) {
+			long startTime = System.nanoTime();
+			long count = 0;
+			for (int i = 0; i < circles; i++) {
+				for (int j = 0; j < circles; j++) {
+					if (powOverlaps(xs[i], ys[i], rs[i], xs[j], ys[j], rs[j])) {
+						count++;
+					}
+				}
+			}
+			double powTime = (System.nanoTime() - startTime) / (double) pairs;
+
+			startTime = System.nanoTime();
+			for (int i = 0; i < circles; i++) {
+				for (int j = 0; j < circles; j++) {
+					if (CollisionKernel.overlaps(xs[i], ys[i], rs[i], xs[j], ys[j], rs[j])) {
+						count++;
+					}
+				}
+			}
+			double kernelTime = (System.nanoTime() - startTime) / (double) pairs;
+
+			startTime = System.nanoTime();
+			for (int i = 0; i < circles; i++) {
+				count += CollisionKernel.overlapsBatch(xs[i], ys[i], rs[i], xs, ys, rs, 0, circles, hits, 0);
+			}
+			double batchTime = (System.nanoTime() - startTime) / (double) pairs;
+
+			// The count is printed so the tests cannot be optimised away
+			System.out.printf("round %d: pow %.3fns, kernel %.3fns, batch %.3fns per pair (%d hits)%n", round,
+					powTime, kernelTime, batchTime, count);
+		}
+	}
+
+	// The collision test used before the kernel, kept to compare against
+	private static boolean powOverlaps(double x1, double y1, double r1, double x2, double y2, double r2) {
+		return Math.pow(x1 - x2, 2) + Math.pow(y1 - y2, 2) <= Math.pow(r1 + r2, 2);
+	}
+
+}
@@ -1,30 +1,35 @@
-import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.ImagePattern;
-import javafx.scene.shape.Circle;
 /**
  * Attributes for a den
  * Will allow a herbivore to enter if ready and not already occupied
  * Derived from the superclass obstacle 
  * 
  * @see Superclass Obstacle for reference to shared collision area
+ * @see the WorldView class for the den graphic
  */
 public class Den extends Obstacle {
-	// Static string to store the location in the resource folder of the den
-	// graphic
-	private static final String denURL = "ShelterforLifeSim.png";
 
-	private Circle collisionBody = new Circle(this.getxPos(), this.getyPos(), 20);
+	// Radius of the body of the den which herbivores hide inside
+	private int bodyRadius = 20;
 	private boolean isOccupied;
 	private boolean isReadyToHide;
+	// Handle of the herbivore hiding in the den, -1 if none
+	private long occupant = -1;
+	// Ticks a herbivore hides for, and ticks until the den can be used again
+	// after a herbivore enters
+	private long hideTicks = 20 * SimClock.TICKS_PER_SECOND;
+	private long occupiedTicks = 25 * SimClock.TICKS_PER_SECOND;
+	// Ticks the herbivore is sent out and the den is freed at, -1 if not due
+	private long releaseTick = -1;
+	private long freeTick = -1;
 
-	// Constructor for a den, calls its parent class obstacle, sets the image
-	// and fills a circle with said image
+	// Constructor for a den, calls its parent class obstacle
 	Den(SimWorld aWorld) {
 		super(aWorld);
-		Image den = new Image(denURL);
-		this.getCollisionArea().setFill(Color.TRANSPARENT);
-		this.getCollisionBody().setFill(new ImagePattern(den, this.getxPos(), this.getyPos(), 1, 1, true));
+	}
+
+	// Constructor for a den read back from a checkpoint
+	Den(SimRandom rnd) {
+		super(rnd);
 	}
 
 	// Start of getters and setters for the den's attributes
@@ -44,12 +49,52 @@ public class Den extends Obstacle {
 		this.isReadyToHide = isReadyToHide;
 	}
 
-	public Circle getCollisionBody() {
-		return collisionBody;
+	public long getOccupant() {
+		return occupant;
+	}
+
+	public void setOccupant(long occupant) {
+		this.occupant = occupant;
+	}
+
+	public long getHideTicks() {
+		return hideTicks;
+	}
+
+	public void setHideTicks(long hideTicks) {
+		this.hideTicks = hideTicks;
+	}
+
+	public long getOccupiedTicks() {
+		return occupiedTicks;
+	}
+
+	public void setOccupiedTicks(long occupiedTicks) {
+		this.occupiedTicks = occupiedTicks;
+	}
+
+	public long getReleaseTick() {
+		return releaseTick;
+	}
+
+	public void setReleaseTick(long releaseTick) {
+		this.releaseTick = releaseTick;
+	}
+
+	public long getFreeTick() {
+		return freeTick;
+	}
+
+	public void setFreeTick(long freeTick) {
+		this.freeTick = freeTick;
+	}
+
+	public int getBodyRadius() {
+		return bodyRadius;
 	}
 
-	public void setCollisionBody(Circle collisionBody) {
-		this.collisionBody = collisionBody;
+	public void setBodyRadius(int bodyRadius) {
+		this.bodyRadius = bodyRadius;
 	}
 
 }
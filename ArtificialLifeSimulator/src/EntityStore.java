@@ -0,0 +1,108 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Holds the live life forms of one kind in a world, in the order they were
+ * added. Life forms are removed in two steps: kill marks a life form dead and
+ * releases its handle straight away, then compact takes out every dead life
+ * form in a single pass. Removing any number of life forms therefore costs one
+ * pass over the store, rather than one pass for each as with
+ * ArrayList.remove(index), and the indexes of the others do not change until
+ * the store is compacted.
+ * <p>
+ * Life forms taken out by compact are kept as spares, so that births can reuse
+ * them instead of allocating new life forms. Nothing outside the store keeps a
+ * life form once it has died, anything that needs to refer to one holds its
+ * handle, which stops resolving when the life form dies.
+ *
+ * @param <T>
+ *            the kind of life form held
+ * @see HandleTable class for the handles given to each life form.
+ */
+public class EntityStore<T extends ALifeForm> implements Iterable<T> {
+	private ArrayList<T> entities = new ArrayList<T>();
+	private HandleTable handles;
+	// Lowest index killed since the last compact, -1 if none
+	private int firstDead = -1;
+	// Dead life forms waiting to be reused
+	private ArrayList<T> spares = new ArrayList<T>();
+
+	// Constructor for a store giving out handles from the given table
+	EntityStore(HandleTable handles) {
+		this.handles = handles;
+	}
+
+	// Adds a life form at the end of the store and gives it a handle
+	public void add(T entity) {
+		entity.setHandle(handles.allocate(entity));
+		entities.add(entity);
+	}
+
+	/**
+	 * Marks the life form at an index as dead and releases its handle. It stays
+	 * in the store until the next call to compact.
+	 */
+	public void kill(int index) {
+		T entity = entities.get(index);
+		if (entity.isDead()) {
+			return;
+		}
+		entity.setDead(true);
+		handles.release(entity.getHandle());
+		if (firstDead < 0 || index < firstDead) {
+			firstDead = index;
+		}
+	}
+
+	/**
+	 * Takes every dead life form out of the store, keeping the others in
+	 * order. Only the part of the store from the first dead life form on is
+	 * looked at, so removing from the end is cheap.
+	 */
+	public void compact() {
+		if (firstDead < 0) {
+			return;
+		}
+		int kept = firstDead;
+		for (int i = firstDead; i < entities.size(); i++) {
+			if (!entities.get(i).isDead()) {
+				entities.set(kept++, entities.get(i));
+			} else {
+				spares.add(entities.get(i));
+			}
+		}
+		entities.subList(kept, entities.size()).clear();
+		firstDead = -1;
+	}
+
+	/**
+	 * Takes a dead life form out of the spares, to be brought back to life and
+	 * added to the store again.
+	 *
+	 * @return a dead life form, or null if there are no spares
+	 * @see respawn method in the ALifeForm class.
+	 */
+	public T takeSpare() {
+		if (spares.isEmpty()) {
+			return null;
+		}
+		return spares.remove(spares.size() - 1);
+	}
+
+	public T get(int index) {
+		return entities.get(index);
+	}
+
+	public int size() {
+		return entities.size();
+	}
+
+	// Life forms can only be removed through kill, so the iterator cannot
+	// remove them
+	@Override
+	public Iterator<T> iterator() {
+		return Collections.unmodifiableList(entities).iterator();
+	}
+
+}
@@ -0,0 +1,397 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An append only binary record of what happened in a world, for finding out
+ * afterwards how a run came to be the way it is. Each record holds the tick
+ * it happened at, its type, a value whose meaning depends on the type and
+ * the handle of the life form it happened to.
+ * <p>
+ * Two sorts of record are kept. Events (births, deaths, poisonings, den
+ * entries and disasters) are what the world did by itself and are only there
+ * to be read. Inputs are what the user did to the world, and as the world
+ * does the same thing every time from the same state, the inputs and the
+ * checkpoint the journal was started from are all that is needed to run it
+ * again. An input recorded at a tick was applied after that tick ran and
+ * before the next one.
+ * <p>
+ * Records are gathered into batches on the thread running the world, and
+ * each full batch is written by a thread of the journal's own, so a tick
+ * never waits on the disk unless the disk falls a long way behind.
+ *
+ * @see Replay class which runs a recorded world again.
+ * @see applyInput method in the SimWorld class.
+ */
+public class EventJournal {
+	// First bytes of every journal, "ALEJ"
+	static final int MAGIC = 0x414c454a;
+	static final int VERSION = 1;
+	// Magic, version, seed of the world and the tick recording started at
+	static final int HEADER_BYTES = 24;
+	// Tick, type, value and handle of each record
+	static final int RECORD_BYTES = 24;
+	// Records in each batch written, and the most full batches waiting to be
+	// written before the world has to wait for the disk
+	private static final int RECORDS_PER_BATCH = 2048;
+	private static final int QUEUED_BATCHES = 16;
+	// Put into the queue after the last batch, to stop the writer
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	// Types of event, the value is what kind of life form it happened to
+	// (CARNIVORE or HERBIVORE) unless given otherwise
+	static final int BORN = 1;
+	// The value is the kind of life form plus the cause of death times 2
+	static final int DIED = 2;
+	static final int POISONED = 3;
+	// The value is the index of the den entered
+	static final int DEN_ENTERED = 4;
+	// The value is the number of life forms removed by the disaster
+	static final int DISASTER = 5;
+
+	// Types of input, which have no handle
+	static final int ADD_CARNIVORE = 16;
+	static final int ADD_HERBIVORE = 17;
+	static final int REMOVE_CARNIVORE = 18;
+	static final int REMOVE_HERBIVORE = 19;
+	static final int TRIGGER_DISASTER = 20;
+	// The value is 1 to turn quick breeding on and 0 to turn it off
+	static final int SET_BREEDING = 21;
+	static final int EDIT_CARNIVORES = 22;
+	static final int EDIT_HERBIVORES = 23;
+
+	// Kinds of life form
+	static final int CARNIVORE = 0;
+	static final int HERBIVORE = 1;
+	// Causes of death
+	static final int STARVED = 0;
+	static final int OLD_AGE = 1;
+	static final int EATEN = 2;
+	static final int REMOVED = 3;
+	static final int CULLED = 4;
+
+	private final FileChannel channel;
+	private final Thread writer;
+	// Batches waiting to be written, and written batches ready for reuse
+	private final ArrayBlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(QUEUED_BATCHES);
+	private final ConcurrentLinkedQueue<ByteBuffer> empty = new ConcurrentLinkedQueue<ByteBuffer>();
+	// Batch being filled
+	private ByteBuffer batch = ByteBuffer.allocate(RECORDS_PER_BATCH * RECORD_BYTES);
+	private boolean closed = false;
+	// Closes the journal if the application exits while recording
+	private final Thread closeOnExit;
+
+	/**
+	 * A single record read back from a journal.
+	 */
+	public static class Record {
+		private final long tick;
+		private final int type;
+		private final int value;
+		private final long handle;
+
+		Record(long tick, int type, int value, long handle) {
+			this.tick = tick;
+			this.type = type;
+			this.value = value;
+			this.handle = handle;
+		}
+
+		// Start of getters for a record
+		public long getTick() {
+			return tick;
+		}
+
+		public int getType() {
+			return type;
+		}
+
+		public int getValue() {
+			return value;
+		}
+
+		public long getHandle() {
+			return handle;
+		}
+
+		public boolean isInput() {
+			return type >= ADD_CARNIVORE;
+		}
+	}
+
+	/**
+	 * Everything read back from a journal file.
+	 */
+	public static class Recording {
+		private final long seed;
+		private final long startTick;
+		private final ArrayList<Record> records;
+
+		Recording(long seed, long startTick, ArrayList<Record> records) {
+			this.seed = seed;
+			this.startTick = startTick;
+			this.records = records;
+		}
+
+		// Start of getters for a recording
+		public long getSeed() {
+			return seed;
+		}
+
+		public long getStartTick() {
+			return startTick;
+		}
+
+		public ArrayList<Record> getRecords() {
+			return records;
+		}
+	}
+
+	/**
+	 * Starts a new journal, replacing the file if it exists.
+	 *
+	 * @param file
+	 *            the file to write the journal to
+	 * @param seed
+	 *            the seed of the world being recorded
+	 * @param startTick
+	 *            the tick of the world's clock as recording starts, which
+	 *            should be that of the checkpoint saved alongside
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	EventJournal(File file, long seed, long startTick) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putLong(seed);
+		header.putLong(startTick);
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeBatches();
+			}
+		}, "Journal");
+		writer.setDaemon(true);
+		writer.start();
+
+		closeOnExit = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				close();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(closeOnExit);
+	}
+
+	/**
+	 * Adds a record to the journal. Records should be added in the order they
+	 * happen, from the thread running the world.
+	 *
+	 * @param tick
+	 *            the tick of the world's clock
+	 * @param type
+	 *            the type of event or input
+	 * @param value
+	 *            meaning depends on the type
+	 * @param handle
+	 *            handle of the life form it happened to, -1 if none
+	 */
+	public synchronized void record(long tick, int type, int value, long handle) {
+		if (closed) {
+			return;
+		}
+		batch.putLong(tick);
+		batch.putInt(type);
+		batch.putInt(value);
+		batch.putLong(handle);
+		if (!batch.hasRemaining()) {
+			flush();
+		}
+	}
+
+	/**
+	 * Hands the records gathered so far to the writer, even if the batch is
+	 * not full.
+	 */
+	public synchronized void flush() {
+		if (closed || batch.position() == 0) {
+			return;
+		}
+		batch.flip();
+		queue(batch);
+		batch = empty.poll();
+		if (batch == null) {
+			batch = ByteBuffer.allocate(RECORDS_PER_BATCH * RECORD_BYTES);
+		}
+	}
+
+	/**
+	 * Writes every record still waiting and closes the file. Records added
+	 * afterwards are ignored.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		flush();
+		closed = true;
+		queue(END);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(closeOnExit);
+		} catch (IllegalStateException e) {
+			// Already closing because the application is exiting
+		}
+	}
+
+	// Passes a batch to the writer, waiting if it is too far behind
+	private void queue(ByteBuffer buffer) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				full.put(buffer);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Run by the writer thread, writes each batch in the order it was queued
+	private void writeBatches() {
+		while (true) {
+			ByteBuffer buffer;
+			try {
+				buffer = full.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+			if (buffer == END) {
+				return;
+			}
+			try {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			buffer.clear();
+			empty.add(buffer);
+		}
+	}
+
+	/**
+	 * Reads a journal back from its file. Any part of a record left at the
+	 * end of the file, by an application that stopped while writing it, is
+	 * left out.
+	 *
+	 * @param file
+	 *            the journal file
+	 * @return the seed and start tick of the journal and all of its records
+	 * @throws IOException
+	 *             if the file cannot be read or is not a journal
+	 */
+	public static Recording read(File file) throws IOException {
+		FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		ByteBuffer buffer;
+		try {
+			if (input.size() < HEADER_BYTES || input.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is not an event journal");
+			}
+			// Read onto the heap rather than mapped, so the file is let go of
+			// as soon as it has been read
+			buffer = ByteBuffer.allocate((int) input.size());
+			while (buffer.hasRemaining()) {
+				if (input.read(buffer) < 0) {
+					// Cut short while being read, what there is is kept
+					break;
+				}
+			}
+		} finally {
+			input.close();
+		}
+		buffer.flip();
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException(file + " is not an event journal this version can read");
+		}
+		long seed = buffer.getLong();
+		long startTick = buffer.getLong();
+		ArrayList<Record> records = new ArrayList<Record>(buffer.remaining() / RECORD_BYTES);
+		while (buffer.remaining() >= RECORD_BYTES) {
+			records.add(new Record(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getLong()));
+		}
+		return new Recording(seed, startTick, records);
+	}
+
+	/**
+	 * Works out the file a journal started alongside a checkpoint is kept in,
+	 * which has the same name with the extension .alj.
+	 */
+	public static File fileFor(File checkpoint) {
+		String name = checkpoint.getName();
+		int dot = name.lastIndexOf('.');
+		return new File(checkpoint.getAbsoluteFile().getParentFile(),
+				(dot > 0 ? name.substring(0, dot) : name) + ".alj");
+	}
+
+	// Name of a type of record, for printing
+	public static String typeName(int type) {
+		switch (type) {
+		case BORN:
+			return "born";
+		case DIED:
+			return "died";
+		case POISONED:
+			return "poisoned";
+		case DEN_ENTERED:
+			return "den entered";
+		case DISASTER:
+			return "disaster";
+		case ADD_CARNIVORE:
+			return "add carnivore";
+		case ADD_HERBIVORE:
+			return "add herbivore";
+		case REMOVE_CARNIVORE:
+			return "remove carnivore";
+		case REMOVE_HERBIVORE:
+			return "remove herbivore";
+		case TRIGGER_DISASTER:
+			return "trigger disaster";
+		case SET_BREEDING:
+			return "set breeding";
+		case EDIT_CARNIVORES:
+			return "edit carnivores";
+		case EDIT_HERBIVORES:
+			return "edit herbivores";
+		default:
+			return "unknown " + type;
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+import java.util.PriorityQueue;
+
+/**
+ * Runs the timed events of a world at the tick they are due, each exactly
+ * once. Events are held in a queue ordered by the tick they are due at, so
+ * each tick only looks at the events due then rather than checking every
+ * timed event.
+ * <p>
+ * Events due at the same tick run in the order they were first scheduled. A
+ * periodic event keeps its place in that order each time it comes round, so
+ * the order events run in never depends on what ran before.
+ *
+ * @see runCycle method in the SimWorld class.
+ */
+public class EventScheduler {
+	private PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+	// Handed out to each event scheduled, in order
+	private long nextOrder = 0;
+
+	// An event in the queue
+	private static class Entry implements Comparable<Entry> {
+		private long tick;
+		private final long order;
+		// Ticks between runs of a periodic event, 0 for an event run once
+		private final long period;
+		private final Runnable action;
+
+		Entry(long tick, long order, long period, Runnable action) {
+			this.tick = tick;
+			this.order = order;
+			this.period = period;
+			this.action = action;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			if (tick != other.tick) {
+				return tick < other.tick ? -1 : 1;
+			}
+			return order < other.order ? -1 : (order == other.order ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Schedules an event to run once.
+	 *
+	 * @param tick
+	 *            the tick to run the event at, an event due at a tick that has
+	 *            passed is run at the next call to runDue
+	 * @param action
+	 *            what to do when the event is due
+	 */
+	public void schedule(long tick, Runnable action) {
+		queue.add(new Entry(tick, nextOrder++, 0, action));
+	}
+
+	/**
+	 * Schedules an event to run at a fixed period, for as long as the world
+	 * runs.
+	 *
+	 * @param firstTick
+	 *            the tick the event first runs at
+	 * @param period
+	 *            ticks between each run of the event, at least 1
+	 * @param action
+	 *            what to do each time the event is due
+	 */
+	public void scheduleEvery(long firstTick, long period, Runnable action) {
+		queue.add(new Entry(firstTick, nextOrder++, Math.max(1, period), action));
+	}
+
+	/**
+	 * Runs every event due at or before the given tick, in order. Periodic
+	 * events are put back into the queue for their next run. Events scheduled
+	 * while this runs are run too if they are already due.
+	 *
+	 * @param tick
+	 *            the current tick of the world
+	 * @return the number of events run
+	 */
+	public int runDue(long tick) {
+		int run = 0;
+		while (!queue.isEmpty() && queue.peek().tick <= tick) {
+			Entry entry = queue.poll();
+			entry.action.run();
+			run++;
+			if (entry.period > 0) {
+				entry.tick += entry.period;
+				queue.add(entry);
+			}
+		}
+		return run;
+	}
+
+	// Removes every event without running it
+	public void clear() {
+		queue.clear();
+	}
+
+	// Start of getters for the scheduler
+	public int size() {
+		return queue.size();
+	}
+
+	// Tick the next event is due at, or -1 if there are none
+	public long getNextTick() {
+		return queue.isEmpty() ? -1 : queue.peek().tick;
+	}
+
+}
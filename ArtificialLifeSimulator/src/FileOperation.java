@@ -16,6 +16,10 @@ import javafx.stage.FileChooser.ExtensionFilter;
  * Controls all functions concerning files Uses the .Csv file format to store
  * and fetch data Returns SimWorld Objects with varying parameters Controlled by
  * the GUIWorld class
+ * <p>
+ * A config holds the world width and height, the number of each entity and
+ * the seed of the world, in that order. The complete state of a running world
+ * can also be saved to and loaded from a binary checkpoint.
  * 
  * @see GUIWorld class for reference to applying these functions.
  */
@@ -72,6 +76,10 @@ public class FileOperation {
 				loadedWorld.setNumOfHerbivores(Integer.parseInt(csvReader.next()));
 				loadedWorld.setNumOfObstacles(Integer.parseInt(csvReader.next()));
 				loadedWorld.setNumOfFood(Integer.parseInt(csvReader.next()));
+				// Older config files have no seed, they keep a random one
+				if (csvReader.hasNextLong()) {
+					loadedWorld.setSeed(csvReader.nextLong());
+				}
 				loadedWorld.setWorldName(fileChoice.getInitialFileName());
 				csvReader.close();
 
@@ -92,6 +100,7 @@ public class FileOperation {
 				dataStream.print(loadedWorld.getNumOfHerbivores() + ",");
 				dataStream.print(loadedWorld.getNumOfObstacles() + ",");
 				dataStream.print(loadedWorld.getNumOfFood() + ",");
+				dataStream.print(loadedWorld.getSeed() + ",");
 				dataStream.close();
 				System.out.println("World Saved Successfully");
 			} catch (IOException e) {
@@ -139,6 +148,10 @@ public class FileOperation {
 					loadedWorld.setNumOfHerbivores(Integer.parseInt(s.next()));
 					loadedWorld.setNumOfObstacles(Integer.parseInt(s.next()));
 					loadedWorld.setNumOfFood(Integer.parseInt(s.next()));
+					// Older config files have no seed, they keep a random one
+					if (s.hasNextLong()) {
+						loadedWorld.setSeed(s.nextLong());
+					}
 					System.out.println("Configuration Loaded Successfully");
 					s.close();
 					// return the new world with the specified parameters
@@ -184,6 +197,7 @@ public class FileOperation {
 			dataStream.print(worldToSave.getNumOfHerbivores() + ",");
 			dataStream.print(worldToSave.getNumOfObstacles() + ",");
 			dataStream.print(worldToSave.getNumOfFood() + ",");
+			dataStream.print(worldToSave.getSeed() + ",");
 			worldToSave.setWorldName(fileName);
 			dataStream.close();
 
@@ -200,6 +214,7 @@ public class FileOperation {
 			dataStream.print(worldToSave.getNumOfHerbivores() + ",");
 			dataStream.print(worldToSave.getNumOfObstacles() + ",");
 			dataStream.print(worldToSave.getNumOfFood() + ",");
+			dataStream.print(worldToSave.getSeed() + ",");
 
 			dataStream.close();
 			System.out.println("World Saved Successfully");
@@ -209,6 +224,169 @@ public class FileOperation {
 		}
 	}
 
+	/**
+	 * Uses a filechooser to pick a checkpoint file, either to save the current
+	 * world to or to load a world from. Only .alc files can be chosen.
+	 * 
+	 * @param forSaving
+	 *            true to pick a file to save to, false to pick one to load
+	 * @return the file chosen, or null if the user cancels
+	 */
+	public File chooseCheckpoint(boolean forSaving) {
+		Stage fChoose = new Stage();
+		Scene fScene = new Scene(new VBox(), 300, 300);
+		fChoose.setScene(fScene);
+		FileChooser fileChoice = new FileChooser();
+		fileChoice.setTitle(forSaving ? "Save World Checkpoint" : "Open World Checkpoint");
+		fileChoice.getExtensionFilters().add(new ExtensionFilter("World Checkpoint", "*.alc"));
+		if (forSaving) {
+			return fileChoice.showSaveDialog(fChoose);
+		}
+		return fileChoice.showOpenDialog(fChoose);
+	}
+
+	/**
+	 * Saves the complete state of a world to a checkpoint file, so it can be
+	 * carried on later from where it is now. The world must not be running a
+	 * tick while it is saved.
+	 * 
+	 * @param file
+	 *            the file to save the checkpoint to
+	 * @param worldToSave
+	 *            the world to save
+	 * @see WorldCheckpoint class for the format of the file.
+	 */
+	public void saveCheckpoint(File file, SimWorld worldToSave) {
+		// Inputs waiting for the next tick are applied first, so that they
+		// are saved with the world rather than lost
+		worldToSave.applyQueuedInputs();
+		try {
+			WorldCheckpoint.save(worldToSave, file);
+			System.out.println("Checkpoint Saved Successfully");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Loads a world from a checkpoint file. The world carries on from the
+	 * tick it was saved at, so createWorld must not be called on it.
+	 * 
+	 * @param file
+	 *            the checkpoint file to load
+	 * @return the world saved in the file, or null if it could not be loaded
+	 */
+	public SimWorld loadCheckpoint(File file) {
+		try {
+			SimWorld loadedWorld = WorldCheckpoint.load(file);
+			loadedWorld.setWorldName(file.getName());
+			System.out.println("Checkpoint Loaded Successfully");
+			this.setHasSucceeded(true);
+			return loadedWorld;
+		} catch (IOException e) {
+			e.printStackTrace();
+			this.setHasSucceeded(false);
+			return null;
+		}
+	}
+
+	/**
+	 * Starts recording a journal of a world. The world is first saved to a
+	 * checkpoint, and the journal is kept alongside it with the extension
+	 * .alj, so the two together can be replayed. Any journal the world was
+	 * already recording is stopped. The world must not be running a tick.
+	 * 
+	 * @param file
+	 *            the file to save the starting checkpoint to
+	 * @param worldToRecord
+	 *            the world to record
+	 * @see Replay class for replaying a recorded world.
+	 */
+	public void startJournal(File file, SimWorld worldToRecord) {
+		stopJournal(worldToRecord);
+		// Inputs waiting for the next tick are part of the checkpoint the
+		// journal starts from, rather than the journal
+		worldToRecord.applyQueuedInputs();
+		try {
+			WorldCheckpoint.save(worldToRecord, file);
+			worldToRecord.setJournal(new EventJournal(EventJournal.fileFor(file), worldToRecord.getSeed(),
+					worldToRecord.getClock().getTick()));
+			System.out.println("Journal Started Successfully");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops recording the journal of a world, writing out everything recorded
+	 * so far. Does nothing if the world has no journal.
+	 * 
+	 * @param worldRecorded
+	 *            the world being recorded
+	 */
+	public void stopJournal(SimWorld worldRecorded) {
+		EventJournal journal = worldRecorded.getJournal();
+		if (journal != null) {
+			worldRecorded.setJournal(null);
+			journal.close();
+			System.out.println("Journal Stopped Successfully");
+		}
+	}
+
+	/**
+	 * Uses a filechooser to pick the CSV file to stream the populations of a
+	 * world into. Only .csv files can be chosen.
+	 * 
+	 * @return the file chosen, or null if the user cancels
+	 */
+	public File chooseTelemetry() {
+		Stage fChoose = new Stage();
+		Scene fScene = new Scene(new VBox(), 300, 300);
+		fChoose.setScene(fScene);
+		FileChooser fileChoice = new FileChooser();
+		fileChoice.setTitle("Save Telemetry");
+		fileChoice.getExtensionFilters().add(new ExtensionFilter("Comma Seperated Values", "*.csv"));
+		return fileChoice.showSaveDialog(fChoose);
+	}
+
+	/**
+	 * Starts streaming the populations of a world out every tick, into a CSV
+	 * file and a binary file alongside it with the extension .altm. Any
+	 * telemetry the world was already streaming is stopped. The world must
+	 * not be running a tick.
+	 * 
+	 * @param file
+	 *            the CSV file to write to
+	 * @param worldToRecord
+	 *            the world to stream the populations of
+	 * @see TelemetrySink class for what is written.
+	 */
+	public void startTelemetry(File file, SimWorld worldToRecord) {
+		stopTelemetry(worldToRecord);
+		try {
+			worldToRecord.setTelemetry(new TelemetrySink(file, TelemetrySink.binaryFileFor(file), 1));
+			System.out.println("Telemetry Started Successfully");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops streaming the populations of a world, writing out every row kept
+	 * so far. Does nothing if the world has no telemetry.
+	 * 
+	 * @param worldRecorded
+	 *            the world being streamed
+	 */
+	public void stopTelemetry(SimWorld worldRecorded) {
+		TelemetrySink telemetry = worldRecorded.getTelemetry();
+		if (telemetry != null) {
+			worldRecorded.setTelemetry(null);
+			telemetry.close();
+			System.out.println("Telemetry Stopped Successfully");
+		}
+	}
+
 	// Getters and setters for the File operations
 	public boolean isHasSucceeded() {
 		return hasSucceeded;
@@ -1,29 +1,28 @@
-import java.util.Random;
-import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.ImagePattern;
-import javafx.scene.shape.Circle;
-
 /**
  * Used to handle food eaten by herbivores Contains certain amounts of calories
  * which are randomised upon the constructor call
+ * 
+ * @see the WorldView class for the food graphics
  */
 public class FoodSource {
 
-	private static final String foodURL = "LongGrassSmaller.png";
-	private static final String pfoodURL = "BerryBush.png";
-	private Circle lifeFormBody;
-	private Circle senseRadius;
 	private int xPos;
 	private int yPos;
+	private int radius;
 	private int calories;
 	private boolean isPoisonous = false;
 	private boolean canBeEaten = true;
-	Random newRnd = new Random();
+	// Ticks this food source takes to grow back once eaten, and the tick it
+	// grows back at, -1 while it can be eaten
+	private long regrowTicks = 10 * SimClock.TICKS_PER_SECOND;
+	private long regrowTick = -1;
+	// Random generator for this food source, from the world seed
+	SimRandom newRnd;
 
 	// Constructor for a food source, defines x and y, creates the image and
 	// decides if the food is poisonous
 	FoodSource(SimWorld aWorld) {
+		newRnd = aWorld.createEntityRandom();
 		// Temporary holders for x and y to ensure the food is placed within the
 		// map
 		int tempX = newRnd.nextInt(aWorld.getWorldWidth());
@@ -42,39 +41,47 @@ public class FoodSource {
 		}
 
 		int chanceOfPoison = newRnd.nextInt(10);
-		this.lifeFormBody = new Circle(xPos, yPos, 20);
-		this.senseRadius = new Circle(xPos, yPos, 20);
-		this.senseRadius.setFill(Color.TRANSPARENT);
+		this.radius = 20;
 		this.calories = newRnd.nextInt(10);
 
 		// Generates a random chance that a given food source will be poisonous
 		// or not (3/10)
 		if (chanceOfPoison % 3 == 2) {
 			this.isPoisonous = true;
-			Image pfood = new Image(pfoodURL);
-			this.lifeFormBody.setFill(new ImagePattern(pfood, this.xPos, this.yPos, 1, 1, true));
 		} else {
 			this.isPoisonous = false;
-			Image food = new Image(foodURL);
-			this.lifeFormBody.setFill(new ImagePattern(food, this.xPos, this.yPos, 1, 1, true));
 		}
 	}
 
+	// Constructor for a food source read back from a checkpoint, which sets
+	// every field afterwards
+	FoodSource(SimRandom rnd) {
+		newRnd = rnd;
+	}
+
 	// Start of getters and setters for a food source
-	public Circle getLifeFormBody() {
-		return lifeFormBody;
+	public int getxPos() {
+		return xPos;
+	}
+
+	public void setxPos(int xPos) {
+		this.xPos = xPos;
+	}
+
+	public int getyPos() {
+		return yPos;
 	}
 
-	public void setLifeFormBody(Circle lifeFormBody) {
-		this.lifeFormBody = lifeFormBody;
+	public void setyPos(int yPos) {
+		this.yPos = yPos;
 	}
 
-	public Circle getSenseRadius() {
-		return senseRadius;
+	public int getRadius() {
+		return radius;
 	}
 
-	public void setSenseRadius(Circle senseRadius) {
-		this.senseRadius = senseRadius;
+	public void setRadius(int radius) {
+		this.radius = radius;
 	}
 
 	public boolean isCanBeEaten() {
@@ -85,6 +92,22 @@ public class FoodSource {
 		this.canBeEaten = canBeEaten;
 	}
 
+	public long getRegrowTicks() {
+		return regrowTicks;
+	}
+
+	public void setRegrowTicks(long regrowTicks) {
+		this.regrowTicks = regrowTicks;
+	}
+
+	public long getRegrowTick() {
+		return regrowTick;
+	}
+
+	public void setRegrowTick(long regrowTick) {
+		this.regrowTick = regrowTick;
+	}
+
 	public boolean isPoisonous() {
 		return isPoisonous;
 	}
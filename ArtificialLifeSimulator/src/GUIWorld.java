@@ -1,18 +1,23 @@
+import java.io.File;
 import java.util.ArrayList;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.Separator;
+import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ToolBar;
@@ -21,6 +26,7 @@ import javafx.scene.layout.VBox;
 import javafx.scene.layout.VBoxBuilder;
 import javafx.scene.text.Text;
 import javafx.stage.Modality;
+import javafx.stage.Screen;
 import javafx.stage.Stage;
 
 /**
@@ -32,11 +38,24 @@ import javafx.stage.Stage;
  *      calls
  */
 public class GUIWorld extends Application {
+	// Largest width and height of a world, bigger worlds than the screen are
+	// shown through the camera of the canvas renderer
+	private static final int MAX_WORLD_SIZE = 20000;
 	private SimWorld w;
+	private WorldRenderer view;
+	// Whether worlds are drawn onto a single canvas rather than with a node
+	// for each entity
+	private boolean useCanvas = false;
+	// Ticked while the world shown is recording a journal
+	private CheckMenuItem menuRecordJournal = new CheckMenuItem("Record Journal");
+	// Ticked while the world shown is streaming telemetry
+	private CheckMenuItem menuRecordTelemetry = new CheckMenuItem("Record Telemetry");
 	private String currentFileName;
 
 	@Override
 	public void start(Stage primaryStage) throws Exception {
+		// Start loading the world graphics while the menus are set up
+		WorldView.preloadImages();
 
 		// Set up the top menu and the menu bar
 		Menu fileMenu = new Menu("File");
@@ -52,15 +71,20 @@ public class GUIWorld extends Application {
 		MenuItem menuLoadConfig = new MenuItem("Load Config");
 		MenuItem menuSaveConfig = new MenuItem("Save Config");
 		MenuItem menuSaveAsConfig = new MenuItem("Save Config As");
+		MenuItem menuSaveCheckpoint = new MenuItem("Save Checkpoint");
+		MenuItem menuLoadCheckpoint = new MenuItem("Load Checkpoint");
 		MenuItem menuExit = new MenuItem("Exit Simulation");
-		fileMenu.getItems().addAll(menuNewConfig, menuLoadConfig, menuSaveConfig, menuSaveAsConfig, menuExit);
+		fileMenu.getItems().addAll(menuNewConfig, menuLoadConfig, menuSaveConfig, menuSaveAsConfig, new SeparatorMenuItem(),
+				menuSaveCheckpoint, menuLoadCheckpoint, new SeparatorMenuItem(), menuExit);
 
 		// Add items to the view menu which will hold the functions
 		MenuItem menuDisplayConfig = new MenuItem("Display Config");
 		MenuItem menuEditConfig = new MenuItem("Edit Config");
 		MenuItem menuDisplayLifeForm = new MenuItem("Display LifeForms");
 		MenuItem menuDisplayMapInfo = new MenuItem("Display Map Info");
-		viewMenu.getItems().addAll(menuDisplayConfig, menuEditConfig, menuDisplayLifeForm, menuDisplayMapInfo);
+		CheckMenuItem menuUseCanvas = new CheckMenuItem("Draw World on Canvas");
+		viewMenu.getItems().addAll(menuDisplayConfig, menuEditConfig, menuDisplayLifeForm, menuDisplayMapInfo,
+				menuUseCanvas);
 
 		// Add items to the edit menu which will hold the functions
 		MenuItem menuModifyCLifeForm = new MenuItem("Modify Carnivore LifeForm");
@@ -77,7 +101,9 @@ public class GUIWorld extends Application {
 		MenuItem menuPauseSim = new MenuItem("Pause Simulation");
 		MenuItem menuResetSim = new MenuItem("Reset Simulation");
 		MenuItem menuCycleByCycleSim = new MenuItem("Cycle-By-Cycle Simulation");
-		simulationMenu.getItems().addAll(menuRunSim, menuPauseSim, menuResetSim, menuCycleByCycleSim);
+		MenuItem menuFastForwardSim = new MenuItem("Fast Forward 1 Minute");
+		simulationMenu.getItems().addAll(menuRunSim, menuPauseSim, menuResetSim, menuCycleByCycleSim,
+				menuFastForwardSim, new SeparatorMenuItem(), menuRecordJournal, menuRecordTelemetry);
 
 		// Add items to the help menu which will hold the functions
 		MenuItem menuAppInfo = new MenuItem("Application Information");
@@ -119,7 +145,7 @@ public class GUIWorld extends Application {
 		newpane.setAlignment(Pos.TOP_LEFT);
 		newpane.getChildren().addAll(myMenuBar);
 		w.createWorld();
-		w.runWorldCycles(primaryStage, newpane, hpane);
+		showWorld(primaryStage, newpane, hpane);
 
 		menuNewConfig.setOnAction(new EventHandler<ActionEvent>() {
 
@@ -130,8 +156,8 @@ public class GUIWorld extends Application {
 				enterData.setTitle("Enter configuration data");
 				Button submitConfigData = new Button("Sumbit Data");
 				Label lblFileName = new Label("File Name:");
-				Label lblWorldHeight = new Label("World Height(Max 1000):");
-				Label lblWorldWidth = new Label("World Width(Max 1800):");
+				Label lblWorldHeight = new Label("World Height(Max " + MAX_WORLD_SIZE + "):");
+				Label lblWorldWidth = new Label("World Width(Max " + MAX_WORLD_SIZE + "):");
 				Label lblNumOfObstacles = new Label("Number Of Obstacles(Max 100):");
 				Label lblNumOfHerbivores = new Label("Number Of Herbivores(Max 100):");
 				Label lblNumOfCarnivores = new Label("Number Of Carnivores(Max 100):");
@@ -176,14 +202,14 @@ public class GUIWorld extends Application {
 								int param6 = Integer.parseInt(txtNumOfFood.getText());
 
 								// Data constraints on the entry parameters
-								if (param1 > 1800) {
-									param1 = 1800;
+								if (param1 > MAX_WORLD_SIZE) {
+									param1 = MAX_WORLD_SIZE;
 								} else if (param1 < 300) {
 									param1 = 300;
 								}
 								;
-								if (param2 > 1000) {
-									param2 = 1000;
+								if (param2 > MAX_WORLD_SIZE) {
+									param2 = MAX_WORLD_SIZE;
 								} else if (param2 < 300) {
 									param2 = 300;
 								}
@@ -215,11 +241,11 @@ public class GUIWorld extends Application {
 								// Stop the old simulation from running and set
 								// the currentWorld to the newly produced one
 								setCurrentFileName(txtFile.getText());
-								w.getCircleTimeLine().stop();
+								view.stop();
 								setW(fileFunction.setNewConfiguration(param1, param2, param3, param4, param5, param6));
 								// Run the new simulation
 								w.createWorld();
-								w.runWorldCycles(primaryStage, newpane, hpane);
+								showWorld(primaryStage, newpane, hpane);
 								enterData.close();
 							}
 						}
@@ -244,7 +270,7 @@ public class GUIWorld extends Application {
 				// and run it
 				if (fileFunction.isHasSucceeded()) {
 					w.createWorld();
-					w.runWorldCycles(primaryStage, newpane, hpane);
+					showWorld(primaryStage, newpane, hpane);
 
 				} else {
 					// If unsuccessful, stick with the old world
@@ -253,12 +279,31 @@ public class GUIWorld extends Application {
 			}
 		});
 
+		menuUseCanvas.setOnAction(new EventHandler<ActionEvent>() {
+
+			@Override
+			public void handle(ActionEvent arg0) {
+				// Show the current world again with the chosen renderer,
+				// carrying on from where it is now
+				boolean wasRunning = view.isRunning();
+				double rate = view.getRate();
+				view.stop();
+				setUseCanvas(menuUseCanvas.isSelected());
+				showWorld(primaryStage, newpane, hpane);
+				view.setRate(rate);
+				if (wasRunning) {
+					view.play();
+				}
+			}
+
+		});
+
 		menuRunSim.setOnAction(new EventHandler<ActionEvent>() {
 
 			@Override
 			public void handle(ActionEvent h) {
 				// Run the current loaded world's timeline
-				w.getCircleTimeLine().play();
+				view.play();
 			}
 
 		});
@@ -268,7 +313,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Pause the current loaded world's timeline
-				w.getCircleTimeLine().pause();
+				view.pause();
 			}
 
 		});
@@ -282,10 +327,10 @@ public class GUIWorld extends Application {
 				if (toggle == false) {
 					toggle = true;
 					// Slow animation to almost frame by frame
-					w.getCircleTimeLine().setRate(0.1);
+					view.setRate(0.1);
 				} else {
 					// Set animation to default rate
-					w.getCircleTimeLine().setRate(2.5);
+					view.setRate(2.5);
 					toggle = false;
 				}
 
@@ -293,12 +338,29 @@ public class GUIWorld extends Application {
 
 		});
 
+		menuFastForwardSim.setOnAction(new EventHandler<ActionEvent>() {
+
+			@Override
+			public void handle(ActionEvent arg0) {
+				// Run a minute of simulated time without drawing, then show
+				// the world as it is afterwards
+				final SimWorld world = w;
+				view.runOnWorld(new Runnable() {
+					@Override
+					public void run() {
+						world.fastForward(60L * SimClock.TICKS_PER_SECOND);
+					}
+				});
+			}
+
+		});
+
 		menuAddHerbivore.setOnAction(new EventHandler<ActionEvent>() {
 
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Enables adding a herbivore for one frame
-				w.setCanAddH(true);
+				w.queueInput(EventJournal.ADD_HERBIVORE, 0);
 			}
 
 		});
@@ -308,7 +370,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Enables adding a carnivore for one frame
-				w.setCanAddC(true);
+				w.queueInput(EventJournal.ADD_CARNIVORE, 0);
 			}
 
 		});
@@ -318,7 +380,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Allows removal of the latest carnivore
-				w.setCanRemC(true);
+				w.queueInput(EventJournal.REMOVE_CARNIVORE, 0);
 			}
 
 		});
@@ -328,7 +390,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Allows removal of the latest herbivore
-				w.setCanRemH(true);
+				w.queueInput(EventJournal.REMOVE_HERBIVORE, 0);
 			}
 
 		});
@@ -338,14 +400,14 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Stop the current timeline
-				w.getCircleTimeLine().stop();
+				view.stop();
 
 				// Set the world parameters back to the last loaded config
 				setW(fileFunction.loadDefaultConfig());
 
 				// Run the simulation
 				w.createWorld();
-				w.runWorldCycles(primaryStage, newpane, hpane);
+				showWorld(primaryStage, newpane, hpane);
 			}
 
 		});
@@ -393,6 +455,104 @@ public class GUIWorld extends Application {
 
 		});
 
+		menuSaveCheckpoint.setOnAction(new EventHandler<ActionEvent>() {
+
+			@Override
+			public void handle(ActionEvent arg0) {
+				// Save the whole world between ticks, wherever it is running
+				File file = fileFunction.chooseCheckpoint(true);
+				if (file != null) {
+					final SimWorld world = w;
+					view.runOnWorld(new Runnable() {
+						@Override
+						public void run() {
+							fileFunction.saveCheckpoint(file, world);
+						}
+					});
+				}
+			}
+
+		});
+
+		menuLoadCheckpoint.setOnAction(new EventHandler<ActionEvent>() {
+
+			@Override
+			public void handle(ActionEvent arg0) {
+				File file = fileFunction.chooseCheckpoint(false);
+				if (file == null) {
+					return;
+				}
+				// The loaded world carries on from where it was saved, so it
+				// is shown without being created again
+				SimWorld loadedWorld = fileFunction.loadCheckpoint(file);
+				if (fileFunction.isHasSucceeded()) {
+					setW(loadedWorld);
+					showWorld(primaryStage, newpane, hpane);
+				}
+			}
+
+		});
+
+		menuRecordJournal.setOnAction(new EventHandler<ActionEvent>() {
+
+			@Override
+			public void handle(ActionEvent arg0) {
+				final SimWorld world = w;
+				if (menuRecordJournal.isSelected()) {
+					// Recording starts from a checkpoint, which the journal is
+					// kept alongside
+					File file = fileFunction.chooseCheckpoint(true);
+					if (file == null) {
+						menuRecordJournal.setSelected(false);
+						return;
+					}
+					view.runOnWorld(new Runnable() {
+						@Override
+						public void run() {
+							fileFunction.startJournal(file, world);
+						}
+					});
+				} else {
+					view.runOnWorld(new Runnable() {
+						@Override
+						public void run() {
+							fileFunction.stopJournal(world);
+						}
+					});
+				}
+			}
+
+		});
+
+		menuRecordTelemetry.setOnAction(new EventHandler<ActionEvent>() {
+
+			@Override
+			public void handle(ActionEvent arg0) {
+				final SimWorld world = w;
+				if (menuRecordTelemetry.isSelected()) {
+					File file = fileFunction.chooseTelemetry();
+					if (file == null) {
+						menuRecordTelemetry.setSelected(false);
+						return;
+					}
+					view.runOnWorld(new Runnable() {
+						@Override
+						public void run() {
+							fileFunction.startTelemetry(file, world);
+						}
+					});
+				} else {
+					view.runOnWorld(new Runnable() {
+						@Override
+						public void run() {
+							fileFunction.stopTelemetry(world);
+						}
+					});
+				}
+			}
+
+		});
+
 		menuExit.setOnAction(new EventHandler<ActionEvent>() {
 
 			@Override
@@ -448,8 +608,8 @@ public class GUIWorld extends Application {
 				enterData.setTitle("Change configuration data");
 				Button submitConfigData = new Button("Sumbit Data");
 				Label lblFileName = new Label("File Name:");
-				Label lblWorldHeight = new Label("World Height(Max 1000):");
-				Label lblWorldWidth = new Label("World Width(Max 1800):");
+				Label lblWorldHeight = new Label("World Height(Max " + MAX_WORLD_SIZE + "):");
+				Label lblWorldWidth = new Label("World Width(Max " + MAX_WORLD_SIZE + "):");
 				Label lblNumOfObstacles = new Label("Number Of Obstacles(Max 100):");
 				Label lblNumOfHerbivores = new Label("Number Of Herbivores(Max 100):");
 				Label lblNumOfCarnivores = new Label("Number Of Carnivores(Max 100):");
@@ -486,22 +646,22 @@ public class GUIWorld extends Application {
 									txtNumOfHerbivores.getText(), txtNumOfCarnivores.getText(),
 									txtNumOfFood.getText())) {
 								// Edit the world with new parameters
-								int param1 = Integer.parseInt(txtHeight.getText());
-								int param2 = Integer.parseInt(txtWidth.getText());
+								int param1 = Integer.parseInt(txtWidth.getText());
+								int param2 = Integer.parseInt(txtHeight.getText());
 								int param3 = Integer.parseInt(txtNumOfCarnivores.getText());
 								int param4 = Integer.parseInt(txtNumOfHerbivores.getText());
 								int param5 = Integer.parseInt(txtNumOfObstacles.getText());
 								int param6 = Integer.parseInt(txtNumOfFood.getText());
 
 								// Data entry constraints
-								if (param1 > 1000) {
-									param1 = 1000;
+								if (param1 > MAX_WORLD_SIZE) {
+									param1 = MAX_WORLD_SIZE;
 								} else if (param1 < 300) {
 									param1 = 300;
 								}
 								;
-								if (param2 > 1800) {
-									param2 = 1800;
+								if (param2 > MAX_WORLD_SIZE) {
+									param2 = MAX_WORLD_SIZE;
 								} else if (param2 < 300) {
 									param2 = 300;
 								}
@@ -530,13 +690,13 @@ public class GUIWorld extends Application {
 									param6 = 0;
 								}
 
-								w.getCircleTimeLine().stop();
+								view.stop();
 								setCurrentFileName(txtFile.getText());
 								// Set the current world to the one just editedm
 								// and run the simulation
 								setW(fileFunction.setNewConfiguration(param1, param2, param3, param4, param5, param6));
 								w.createWorld();
-								w.runWorldCycles(primaryStage, newpane, hpane);
+								showWorld(primaryStage, newpane, hpane);
 								enterData.close();
 							}
 						}
@@ -551,7 +711,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Runs the function to trigger a disaster
-				w.setDisaster(true);
+				w.queueInput(EventJournal.TRIGGER_DISASTER, 0);
 			}
 		});
 
@@ -611,23 +771,36 @@ public class GUIWorld extends Application {
 
 			@Override
 			public void handle(ActionEvent arg0) {
-				// Creates a string Arraylist to hold data
-				ArrayList<String> lifeFormData = w.getAllLifeFormData();
-
-				// Defines a new text area with a row count the same as number
-				// of lifeforms
-				// as passed in by the getAllLifeFormData() function
-				TextArea textArea = new TextArea();
-				textArea.setPrefRowCount(lifeFormData.size());
-				// For each row in the arraylist append text to the text area
-				for (int i = 0; i < lifeFormData.size(); i++) {
-					textArea.appendText(lifeFormData.get(i) + "\n");
+				// Collects the data on the world's thread, then shows it on the
+				// JavaFX application thread
+				final SimWorld world = w;
+				view.runOnWorld(new Runnable() {
+					@Override
+					public void run() {
+						// Creates a string Arraylist to hold data
+						final ArrayList<String> lifeFormData = world.getAllLifeFormData();
+						Platform.runLater(new Runnable() {
+							@Override
+							public void run() {
+								// Defines a new text area with a row count the
+								// same as number of lifeforms as passed in by
+								// the getAllLifeFormData() function
+								TextArea textArea = new TextArea();
+								textArea.setPrefRowCount(lifeFormData.size());
+								// For each row in the arraylist append text to
+								// the text area
+								for (int i = 0; i < lifeFormData.size(); i++) {
+									textArea.appendText(lifeFormData.get(i) + "\n");
 
-				}
-				// show the data in a new stage
-				Stage lifeFormStats = new Stage();
-				lifeFormStats.setScene(new Scene(textArea));
-				lifeFormStats.show();
+								}
+								// show the data in a new stage
+								Stage lifeFormStats = new Stage();
+								lifeFormStats.setScene(new Scene(textArea));
+								lifeFormStats.show();
+							}
+						});
+					}
+				});
 			}
 
 		});
@@ -637,7 +810,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Allows the addition of carnivores to the world
-				w.setCanAddC(true);
+				w.queueInput(EventJournal.ADD_CARNIVORE, 0);
 			}
 
 		});
@@ -647,7 +820,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Allows the addition of herbivores to the world
-				w.setCanAddH(true);
+				w.queueInput(EventJournal.ADD_HERBIVORE, 0);
 			}
 
 		});
@@ -657,7 +830,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Increases the rate of the frames in the simulation
-				w.getCircleTimeLine().setRate(w.getCircleTimeLine().getRate() + 0.1);
+				view.setRate(view.getRate() + 0.1);
 			}
 
 		});
@@ -667,7 +840,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Decreases the reate of the frames in the simulation
-				w.getCircleTimeLine().setRate(w.getCircleTimeLine().getRate() - 0.1);
+				view.setRate(view.getRate() - 0.1);
 			}
 
 		});
@@ -695,9 +868,9 @@ public class GUIWorld extends Application {
 				// If the toggle breeding radiobutton is selected, allow animals
 				// to breed if their energy is high enough
 				if (rbtnToggleBreeding.isSelected()) {
-					w.setToggleBreed(true);
+					w.queueInput(EventJournal.SET_BREEDING, 1);
 				} else if (!rbtnToggleBreeding.isSelected()) {
-					w.setToggleBreed(false);
+					w.queueInput(EventJournal.SET_BREEDING, 0);
 				}
 			}
 
@@ -709,7 +882,13 @@ public class GUIWorld extends Application {
 			public void handle(ActionEvent arg0) {
 				// Allow the increase of energy and intelligence level of
 				// carnivores
-				w.editCarnivores();
+				final SimWorld world = w;
+				view.runOnWorld(new Runnable() {
+					@Override
+					public void run() {
+						world.applyInput(EventJournal.EDIT_CARNIVORES, 0);
+					}
+				});
 			}
 
 		});
@@ -719,7 +898,13 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Allows the increase of energy and intelligence of herbivores
-				w.editHerbivores();
+				final SimWorld world = w;
+				view.runOnWorld(new Runnable() {
+					@Override
+					public void run() {
+						world.applyInput(EventJournal.EDIT_HERBIVORES, 0);
+					}
+				});
 			}
 
 		});
@@ -729,7 +914,7 @@ public class GUIWorld extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				// Allows a disaster in the world to occur
-				w.setDisaster(true);
+				w.queueInput(EventJournal.TRIGGER_DISASTER, 0);
 
 			}
 
@@ -798,6 +983,46 @@ public class GUIWorld extends Application {
 		DebugMessage.show();
 	}
 
+	/**
+	 * Creates a view for the current world and runs its simulation on the
+	 * given stage. The world is drawn onto a canvas if that has been chosen
+	 * from the view menu or the world is bigger than the screen, otherwise
+	 * with a node for each entity
+	 * 
+	 * @param primaryStage
+	 *            the stage to show the world upon
+	 * @param pane
+	 *            vertical box holding the menubar
+	 * @param hpane
+	 *            vertical box holding the toolbar
+	 */
+	public void showWorld(Stage primaryStage, VBox pane, VBox hpane) {
+		// Stop the world shown before, so nothing is left running it. If it
+		// has been replaced its threads are shut down, and as a journal or
+		// telemetry only records the world it was started on, any left
+		// recording it are finished off
+		if (view != null) {
+			view.stop();
+			if (view.getWorld() != w) {
+				new FileOperation().stopJournal(view.getWorld());
+				new FileOperation().stopTelemetry(view.getWorld());
+				view.getWorld().close();
+			}
+		}
+		menuRecordJournal.setSelected(w.getJournal() != null);
+		menuRecordTelemetry.setSelected(w.getTelemetry() != null);
+		// Only the canvas renderer can pan and zoom, so it is used for any
+		// world bigger than the screen
+		Rectangle2D screen = Screen.getPrimary().getVisualBounds();
+		boolean fitsOnScreen = w.getWorldWidth() <= screen.getWidth() && w.getWorldHeight() <= screen.getHeight();
+		if (useCanvas || !fitsOnScreen) {
+			setView(new CanvasWorldView(w));
+		} else {
+			setView(new WorldView(w));
+		}
+		view.runWorldCycles(primaryStage, pane, hpane);
+	}
+
 	public static void main(String[] args) {
 		// Launches the main application
 		launch();
@@ -813,6 +1038,22 @@ public class GUIWorld extends Application {
 		this.w = w;
 	}
 
+	public WorldRenderer getView() {
+		return view;
+	}
+
+	public void setView(WorldRenderer view) {
+		this.view = view;
+	}
+
+	public boolean isUseCanvas() {
+		return useCanvas;
+	}
+
+	public void setUseCanvas(boolean useCanvas) {
+		this.useCanvas = useCanvas;
+	}
+
 	public String getCurrentFileName() {
 		return currentFileName;
 	}
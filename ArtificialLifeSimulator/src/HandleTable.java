@@ -0,0 +1,85 @@
+import java.util.Arrays;
+
+/**
+ * Gives each life form in a world a handle which can be kept in place of the
+ * life form itself. A handle is made of the number of a slot in the table and
+ * the generation of that slot when the handle was given out. Once a life form
+ * is removed its slot moves on to the next generation and is reused for a later
+ * life form, so old handles to it resolve to null rather than to whichever life
+ * form has the slot now.
+ *
+ * @see EntityStore class which gives out and releases the handles.
+ */
+public class HandleTable {
+	// Life form using each slot, null if the slot is free
+	private ALifeForm[] entities = new ALifeForm[16];
+	// Current generation of each slot
+	private int[] generations = new int[16];
+	// Slots released and waiting to be reused, the last released is reused
+	// first
+	private int[] freeSlots = new int[16];
+	private int freeCount = 0;
+	// Number of slots ever used
+	private int slotCount = 0;
+
+	/**
+	 * Gives a life form a handle.
+	 *
+	 * @param entity
+	 *            the life form
+	 * @return a handle which resolves to the life form until it is released
+	 */
+	public long allocate(ALifeForm entity) {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (slotCount == entities.length) {
+				entities = Arrays.copyOf(entities, slotCount * 2);
+				generations = Arrays.copyOf(generations, slotCount * 2);
+			}
+			slot = slotCount++;
+		}
+		entities[slot] = entity;
+		return ((long) generations[slot] << 32) | slot;
+	}
+
+	/**
+	 * Releases a handle so it no longer resolves. Releasing a handle which has
+	 * already been released does nothing.
+	 */
+	public void release(long handle) {
+		int slot = slotOf(handle);
+		if (resolve(handle) == null) {
+			return;
+		}
+		entities[slot] = null;
+		generations[slot]++;
+		if (freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		}
+		freeSlots[freeCount++] = slot;
+	}
+
+	/**
+	 * Returns the life form a handle was given to, or null if it has been
+	 * released since.
+	 */
+	public ALifeForm resolve(long handle) {
+		int slot = slotOf(handle);
+		if (slot < 0 || slot >= slotCount || generations[slot] != generationOf(handle)) {
+			return null;
+		}
+		return entities[slot];
+	}
+
+	// Start of methods for taking a handle apart
+	public static int slotOf(long handle) {
+		return (int) handle;
+	}
+
+	public static int generationOf(long handle) {
+		return (int) (handle >>> 32);
+	}
+
+}
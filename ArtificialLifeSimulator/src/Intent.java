@@ -0,0 +1,58 @@
+import java.util.Arrays;
+
+/**
+ * What one animal has decided to do to the rest of the world during the sense
+ * phase of a tick. Animals are sensed in parallel and must not change anything
+ * they share, so the herbivores, food and dens an animal wants to eat or hide
+ * in are only written down here. The world then carries out every animal's
+ * intent one at a time, in array order, once all of them have been sensed.
+ *
+ * @see runCycle method in the SimWorld class.
+ */
+public class Intent {
+	// Indexes of what the animal has touched and wants to eat, herbivores for
+	// a carnivore and food sources for a herbivore, in the order found
+	private int[] eats = new int[4];
+	private int eatCount = 0;
+	// Indexes of the dens a herbivore has touched and wants to hide in
+	private int[] hides = new int[4];
+	private int hideCount = 0;
+
+	// Forgets everything decided in the previous tick
+	public void clear() {
+		eatCount = 0;
+		hideCount = 0;
+	}
+
+	public void addEat(int index) {
+		if (eatCount == eats.length) {
+			eats = Arrays.copyOf(eats, eatCount * 2);
+		}
+		eats[eatCount++] = index;
+	}
+
+	public void addHide(int index) {
+		if (hideCount == hides.length) {
+			hides = Arrays.copyOf(hides, hideCount * 2);
+		}
+		hides[hideCount++] = index;
+	}
+
+	// Start of getters for an intent
+	public int[] getEats() {
+		return eats;
+	}
+
+	public int getEatCount() {
+		return eatCount;
+	}
+
+	public int[] getHides() {
+		return hides;
+	}
+
+	public int getHideCount() {
+		return hideCount;
+	}
+
+}
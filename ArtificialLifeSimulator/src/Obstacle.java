@@ -1,8 +1,3 @@
-import java.util.Random;
-import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.ImagePattern;
-import javafx.scene.shape.Circle;
 /**
  * Class to handle the objects that impede life form movement.
  * When a life form object collides with an obstacle
@@ -11,22 +6,22 @@ import javafx.scene.shape.Circle;
  * @param a World object is used to get the world width and height
  * when the constructor is called
  * @see the SimWorld class for implementation of this class
+ * @see the WorldView class for the obstacle graphic
  */
 public class Obstacle {
-	// Static string to store the location in the resource folder of the
-	// obstacle graphic
-	private static final String obstacleURL = "DarkTreeSmaller.png";
 
 	private boolean isPassable;
 	private int xPos;
 	private int yPos;
-	private Circle collisionArea;
-	// Random seed generator for controlling x and y placement in the world
-	Random newRnd = new Random();
+	private int collisionRadius;
+	// Random seed generator for controlling x and y placement in the world,
+	// each obstacle has its own stream from the world seed
+	SimRandom newRnd;
 
 	// Constructor for an obstacle, ensures an obstacle is inside the world
-	// before setting x and y, and defines the image for the obstacle.
+	// before setting x and y, and defines the size of the obstacle.
 	Obstacle(SimWorld aWorld) {
+		newRnd = aWorld.createEntityRandom();
 		int tempX = newRnd.nextInt(aWorld.getWorldWidth());
 		int tempY = newRnd.nextInt(aWorld.getWorldHeight());
 		boolean doStuff = true;
@@ -43,11 +38,14 @@ public class Obstacle {
 				tempY = newRnd.nextInt(aWorld.getWorldHeight());
 			}
 		}
-		Image obstacle = new Image(obstacleURL);
 		this.isPassable = false;
-		this.collisionArea = new Circle(xPos, yPos, 30);
-		this.collisionArea.setFill(Color.WHEAT);
-		this.collisionArea.setFill(new ImagePattern(obstacle, this.getxPos(), this.getyPos(), 1, 1, true));
+		this.collisionRadius = 30;
+	}
+
+	// Constructor for an obstacle read back from a checkpoint, which sets
+	// every field afterwards
+	Obstacle(SimRandom rnd) {
+		newRnd = rnd;
 	}
 
 	// Start of getters and setters for an obstacle
@@ -75,11 +73,11 @@ public class Obstacle {
 		this.yPos = yPos;
 	}
 
-	public Circle getCollisionArea() {
-		return collisionArea;
+	public int getCollisionRadius() {
+		return collisionRadius;
 	}
 
-	public void setCollisionArea(Circle collisionArea) {
-		this.collisionArea = collisionArea;
+	public void setCollisionRadius(int collisionRadius) {
+		this.collisionRadius = collisionRadius;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+import java.util.Arrays;
+
+/**
+ * A rectangular part of a world, sensed by a worker thread of its own. A
+ * region owns the animals whose centres were inside it at the start of the
+ * tick. It also keeps its own grid of the herbivores its carnivores could
+ * sense. These are the herbivores it owns, plus ghosts: herbivores of
+ * neighbouring regions that are close enough to the border to be sensed from
+ * inside it.
+ * <p>
+ * Regions are refilled at the start of every tick, so an animal which crossed
+ * a border during the last tick migrates to its new region at that point.
+ * Regions only ever read from the world while they are sensed, so no lock is
+ * needed between them.
+ *
+ * @see senseAnimals method in the SimWorld class.
+ */
+public class Region {
+	// Indexes in the world arrays of the animals owned by the region
+	private int[] carnivores = new int[16];
+	private int carnivoreCount = 0;
+	private int[] herbivores = new int[16];
+	private int herbivoreCount = 0;
+	// Herbivores owned or ghosted by the region, in world order, and their
+	// positions and radii for the grid
+	private int[] sensedIds = new int[16];
+	private double[] sensedXs = new double[16];
+	private double[] sensedYs = new double[16];
+	private double[] sensedRs = new double[16];
+	private int sensedCount = 0;
+	private SpatialGrid herbivoreGrid;
+	// Results of the grid queries made by the region's worker
+	private SpatialGrid.Query query = new SpatialGrid.Query();
+
+	/**
+	 * Constructor for a region covering the given rectangle of the world.
+	 *
+	 * @param minX,minY
+	 *            top left corner of the region
+	 * @param width,height
+	 *            size of the region
+	 * @param cellSize
+	 *            length of the side of each cell of the herbivore grid
+	 */
+	Region(double minX, double minY, double width, double height, double cellSize) {
+		herbivoreGrid = new SpatialGrid(minX, minY, width, height, cellSize);
+	}
+
+	// Forgets the animals of the previous tick
+	public void clear() {
+		carnivoreCount = 0;
+		herbivoreCount = 0;
+		sensedCount = 0;
+	}
+
+	public void addCarnivore(int index) {
+		if (carnivoreCount == carnivores.length) {
+			carnivores = Arrays.copyOf(carnivores, carnivoreCount * 2);
+		}
+		carnivores[carnivoreCount++] = index;
+	}
+
+	public void addHerbivore(int index) {
+		if (herbivoreCount == herbivores.length) {
+			herbivores = Arrays.copyOf(herbivores, herbivoreCount * 2);
+		}
+		herbivores[herbivoreCount++] = index;
+	}
+
+	/**
+	 * Adds a herbivore the carnivores of the region could sense, either one
+	 * the region owns or a ghost. Herbivores must be added in world order.
+	 */
+	public void addSensed(int index, double x, double y, double radius) {
+		if (sensedCount == sensedIds.length) {
+			sensedIds = Arrays.copyOf(sensedIds, sensedCount * 2);
+			sensedXs = Arrays.copyOf(sensedXs, sensedIds.length);
+			sensedYs = Arrays.copyOf(sensedYs, sensedIds.length);
+			sensedRs = Arrays.copyOf(sensedRs, sensedIds.length);
+		}
+		sensedIds[sensedCount] = index;
+		sensedXs[sensedCount] = x;
+		sensedYs[sensedCount] = y;
+		sensedRs[sensedCount] = radius;
+		sensedCount++;
+	}
+
+	// Puts the herbivores added since the last clear into the grid
+	public void buildGrid() {
+		herbivoreGrid.build(sensedXs, sensedYs, sensedRs, sensedCount);
+	}
+
+	/**
+	 * Finds the herbivores of the region whose bodies overlap a circle.
+	 *
+	 * @return the number found, their world indexes are at the start of
+	 *         getQuery().getResult() in increasing order
+	 */
+	public int querySensed(double x, double y, double radius) {
+		int found = herbivoreGrid.queryOverlapping(x, y, radius, query);
+		// Turn positions in the grid into world indexes, which keeps them in
+		// order as herbivores are added in world order
+		int[] result = query.getResult();
+		for (int i = 0; i < found; i++) {
+			result[i] = sensedIds[result[i]];
+		}
+		return found;
+	}
+
+	// Start of getters for a region
+	public int[] getCarnivores() {
+		return carnivores;
+	}
+
+	public int getCarnivoreCount() {
+		return carnivoreCount;
+	}
+
+	public int[] getHerbivores() {
+		return herbivores;
+	}
+
+	public int getHerbivoreCount() {
+		return herbivoreCount;
+	}
+
+	public SpatialGrid.Query getQuery() {
+		return query;
+	}
+
+}
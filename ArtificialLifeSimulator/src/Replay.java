@@ -0,0 +1,145 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs a recorded world again from the checkpoint its journal was started
+ * from, applying the user's inputs at the ticks they were recorded at. As a
+ * world always does the same thing from the same state, the world replayed
+ * goes through exactly the states the recorded world did, and can be stopped
+ * at any tick to look at what happened.
+ * <p>
+ * A keyframe (a checkpoint held in memory) is taken every ten simulated
+ * minutes while replaying, so going back to an earlier tick only replays
+ * from the keyframe before it rather than from the start.
+ * <p>
+ * Usage: Replay checkpoint journal tick [checkpointOut]
+ * <p>
+ * Prints the populations at the tick and the number of each kind of event
+ * up to it. If checkpointOut is given the world at the tick is saved there,
+ * to be opened with Load Checkpoint.
+ *
+ * @see EventJournal class for how a run is recorded.
+ */
+public class Replay {
+	// Ticks between keyframes
+	static final long KEYFRAME_TICKS = 10L * 60 * SimClock.TICKS_PER_SECOND;
+
+	private final String name;
+	// Inputs of the journal, in the order they were recorded
+	private final ArrayList<EventJournal.Record> inputs = new ArrayList<EventJournal.Record>();
+	// Checkpoints by the tick they were taken at, the first being the one the
+	// journal started from
+	private final TreeMap<Long, ByteBuffer> keyframes = new TreeMap<Long, ByteBuffer>();
+	private SimWorld world;
+	// Index of the next input to be applied
+	private int nextInput;
+
+	/**
+	 * Sets up a replay of a journal, with the world at the tick recording
+	 * started.
+	 *
+	 * @param checkpoint
+	 *            the checkpoint saved when the journal was started
+	 * @param recording
+	 *            the journal read back from its file
+	 * @throws IOException
+	 *             if the checkpoint cannot be read or is not the one the
+	 *             journal started from
+	 */
+	Replay(File checkpoint, EventJournal.Recording recording) throws IOException {
+		this.name = checkpoint.toString();
+		world = WorldCheckpoint.load(checkpoint);
+		if (world.getSeed() != recording.getSeed() || world.getClock().getTick() != recording.getStartTick()) {
+			throw new IOException("The journal was not started from " + checkpoint);
+		}
+		for (EventJournal.Record record : recording.getRecords()) {
+			if (record.isInput()) {
+				inputs.add(record);
+			}
+		}
+		keyframes.put(world.getClock().getTick(), WorldCheckpoint.write(world));
+	}
+
+	/**
+	 * Moves the replayed world to a tick, going back to the latest keyframe
+	 * before it if the tick has already been passed. Ticks before the start
+	 * of the journal go to its start.
+	 *
+	 * @param tick
+	 *            the tick to stop at, after it has run and before any inputs
+	 *            recorded at it
+	 * @return the world at the tick
+	 * @throws IOException
+	 *             if a keyframe cannot be read back
+	 */
+	public SimWorld seek(long tick) throws IOException {
+		long target = Math.max(tick, keyframes.firstKey());
+		if (target < world.getClock().getTick()) {
+			Map.Entry<Long, ByteBuffer> keyframe = keyframes.floorEntry(target);
+			world.close();
+			world = WorldCheckpoint.read(keyframe.getValue().duplicate(), name);
+			nextInput = 0;
+			while (nextInput < inputs.size() && inputs.get(nextInput).getTick() < keyframe.getKey()) {
+				nextInput++;
+			}
+		}
+
+		while (true) {
+			long now = world.getClock().getTick();
+			if (now % KEYFRAME_TICKS == 0 && !keyframes.containsKey(now)) {
+				keyframes.put(now, WorldCheckpoint.write(world));
+			}
+			if (now >= target) {
+				return world;
+			}
+			while (nextInput < inputs.size() && inputs.get(nextInput).getTick() <= now) {
+				EventJournal.Record input = inputs.get(nextInput++);
+				world.applyInput(input.getType(), input.getValue());
+			}
+			world.runCycle();
+		}
+	}
+
+	public SimWorld getWorld() {
+		return world;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: Replay checkpoint journal tick [checkpointOut]");
+			return;
+		}
+		EventJournal.Recording recording = EventJournal.read(new File(args[1]));
+		Replay replay = new Replay(new File(args[0]), recording);
+		long tick = Long.parseLong(args[2]);
+
+		long startTime = System.currentTimeMillis();
+		SimWorld world = replay.seek(tick);
+		long elapsed = System.currentTimeMillis() - startTime;
+		System.out.println("Replayed to tick " + world.getClock().getTick() + " in " + elapsed + "ms");
+		System.out.println("carnivores " + world.getNumOfCarnivores() + ", herbivores " + world.getNumOfHerbivores());
+
+		// Count each type of record up to the tick
+		TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+		for (EventJournal.Record record : recording.getRecords()) {
+			if (record.getTick() <= world.getClock().getTick()) {
+				Integer count = counts.get(record.getType());
+				counts.put(record.getType(), count == null ? 1 : count + 1);
+			}
+		}
+		for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+			System.out.println(EventJournal.typeName(count.getKey()) + ": " + count.getValue());
+		}
+
+		if (args.length > 3) {
+			WorldCheckpoint.save(world, new File(args[3]));
+			System.out.println("Saved the world at tick " + world.getClock().getTick() + " to " + args[3]);
+		}
+		world.close();
+	}
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Keeps simulated time for a world. Time is counted in fixed size ticks, one
+ * tick for each cycle of the simulation, so that the simulation gives the same
+ * results however fast the cycles are run or drawn.
+ * <p>
+ * Timed events (ageing, poison checks, food regrowth) work in simulated
+ * seconds, which are a fixed number of ticks long.
+ *
+ * @see SimWorld class for the use of the clock.
+ */
+public class SimClock {
+	// Number of ticks in one simulated second, one tick matches one 16ms
+	// frame of the original animation
+	public static final int TICKS_PER_SECOND = 60;
+
+	private long tick = 0;
+
+	/**
+	 * Moves the clock forward by a single tick
+	 */
+	public void advance() {
+		tick++;
+	}
+
+	/**
+	 * Returns whether the current tick is the first tick of a new simulated
+	 * second.
+	 *
+	 * @return true if a whole number of seconds have passed at this tick
+	 */
+	public boolean isNewSecond() {
+		return tick % TICKS_PER_SECOND == 0;
+	}
+
+	// Start of getters and setters for the clock
+	public long getTick() {
+		return tick;
+	}
+
+	public void setTick(long tick) {
+		this.tick = tick;
+	}
+
+	public int getSeconds() {
+		return (int) (tick / TICKS_PER_SECOND);
+	}
+
+}
@@ -0,0 +1,86 @@
+import java.util.Random;
+
+/**
+ * Random number generator used for everything random in a world. Unlike a
+ * plain Random it is built on the SplitMix64 generator, so its state can be
+ * read and restored and any number of independent streams can be derived from
+ * one world seed.
+ * <p>
+ * Each entity and each subsystem of a world gets its own stream, worked out
+ * from the world seed and a stream number alone. This means a world run from
+ * the same seed gives the same results on any machine, whatever order the
+ * streams are used in.
+ *
+ * @see createRandom method in the SimWorld class.
+ */
+public class SimRandom extends Random {
+	private static final long serialVersionUID = 1L;
+	// Odd constant added to the state at each step (the golden ratio)
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	// Not initialised here as the Random constructor sets it through setSeed
+	private long state;
+
+	// Constructor for a generator starting from the given seed
+	SimRandom(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Creates the generator for one stream of a world.
+	 *
+	 * @param worldSeed
+	 *            the seed of the world
+	 * @param streamId
+	 *            number of the stream, each entity and subsystem has its own
+	 * @return a generator independent from those of every other stream
+	 */
+	public static SimRandom forStream(long worldSeed, long streamId) {
+		return new SimRandom(seedFor(worldSeed, streamId));
+	}
+
+	/**
+	 * Works out the seed of one stream of a world, for restarting an existing
+	 * generator on that stream with setSeed.
+	 */
+	public static long seedFor(long worldSeed, long streamId) {
+		return mix(worldSeed ^ mix(streamId * GOLDEN_GAMMA));
+	}
+
+	/**
+	 * Scrambles the bits of a value (the SplitMix64 finaliser), so that close
+	 * values give unrelated results.
+	 */
+	public static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		this.state = seed;
+	}
+
+	// All other methods of Random (nextInt, nextFloat...) are built from this
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+
+	// Getters and setters for the state, used to save and restore a generator
+	public long getState() {
+		return state;
+	}
+
+	public void setState(long state) {
+		this.state = state;
+	}
+
+}
@@ -1,28 +1,26 @@
 import java.util.ArrayList;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
-import javafx.scene.Group;
-import javafx.scene.Scene;
-import javafx.scene.image.Image;
-import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.ImagePattern;
-import javafx.scene.shape.Circle;
-import javafx.stage.Stage;
-import javafx.util.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Handles all interactions between entities/ life forms. Implements collision
  * methods and dictates what happens when specific collision events occur.
  * <p>
- * Sets the background image of the world, and keeps track of events based on
- * seconds elapsed. The simTicks variable is incremented at each second, then
- * the modulus operator is used to handle timed events.
- * 
- * @see The simTicks variable in this class.
- * 
+ * Keeps track of events based on simulated time elapsed. Timed events are
+ * held in an EventScheduler and each one runs exactly once at the tick it is
+ * due, while simTicks counts the seconds of the world's clock.
+ * <p>
+ * The world holds no graphics and can be run without the JavaFX toolkit, each
+ * call to runCycle advances the simulation by one tick of its SimClock.
+ * Drawing the world is left to the WorldView class.
+ *
+ * @see EventScheduler class for how timed events are run.
+ * @see SimClock class for how simulated time is kept.
+ * @see WorldView class for how a world is shown on screen.
+ *
  */
 public class SimWorld {
 	private String worldName;
@@ -33,227 +31,445 @@ public class SimWorld {
 	private int numOfObstacles;
 	private int numOfFood;
 	private int totalLifeforms = 0;
-	private boolean canAddC = false;
-	private boolean canRemC = false;
-	private boolean canRemH = false;
+	// Settings changed by the GUI while the world may be running on a thread
+	// of its own, so each change is seen by the next tick
+	private volatile boolean canAddC = false;
+	private volatile boolean canRemC = false;
+	private volatile boolean canRemH = false;
 	private boolean isPlaying = true;
-	private boolean toggleDev = false;
-	private boolean toggleBreed = false;
-	private boolean disaster = false;
+	private volatile boolean toggleDev = false;
+	private volatile boolean toggleBreed = false;
+	private volatile boolean disaster = false;
 	private int simTicks = 0;
 	private int countDown = 5;
-	private Timeline circleTimeLine = new Timeline();
-	private Circle blastRadius;
-	private ArrayList<Carnivore> carnivoreArray = new ArrayList<Carnivore>();
-	private ArrayList<Herbivore> herbivoreArray = new ArrayList<Herbivore>();
+	// Tick at which the current disaster countdown started, -1 if none
+	private long disasterTick = -1;
+	private boolean wasteland = false;
+	private SimClock clock = new SimClock();
+	// Timed events, run at the tick they are due
+	private EventScheduler events = new EventScheduler();
+	// Journal recording what happens in the world, null if none is kept
+	private EventJournal journal;
+	// Sink streaming the populations out every few ticks, null if none
+	private TelemetrySink telemetry;
+	// Life forms born and died since the last row given to the telemetry
+	private int births = 0;
+	private int deaths = 0;
+	// Inputs from the user waiting for the start of the next tick, each a
+	// type of input from EventJournal and its value
+	private ConcurrentLinkedQueue<int[]> inputs = new ConcurrentLinkedQueue<int[]>();
+	// Seed all random streams in the world are derived from, saved with the
+	// config so that a world can be run again with the same results
+	private long seed = new Random().nextLong();
+	// Stream number given to the next entity created
+	private long nextEntityStream = 0;
+	// Size of the grid cells used for sensing, a little more than a sense
+	// radius plus a body radius so a search covers at most 3x3 cells
+	private static final double SENSE_CELL_SIZE = 128;
+	// Copy of every herbivore taken at the start of each tick, read by the
+	// carnivores while the herbivores themselves are moving
+	private double[] herbivoreXs = new double[0];
+	private double[] herbivoreYs = new double[0];
+	private double[] herbivoreRs = new double[0];
+	private boolean[] herbivoreVisible = new boolean[0];
+	private boolean[] herbivorePoisoned = new boolean[0];
+	// Number of threads animals are sensed on, and the pool of those threads
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private ForkJoinPool sensePool;
+	// Regions the world is split into for sensing, each sensed as one piece
+	// of work, made when the world is first run
+	private Region[] regions;
+	private int regionColumns;
+	private int regionRows;
+	private double regionWidth;
+	private double regionHeight;
+	// A few regions are made for each thread so that threads which finish
+	// quiet regions early can take busier ones
+	private static final int REGIONS_PER_THREAD = 4;
+	// Smallest side of a region, so most animals are not near a border
+	private static final double MIN_REGION_SIZE = 4 * SENSE_CELL_SIZE;
+	// What each animal decided in the sense phase, carnivores first, reused
+	// each tick
+	private ArrayList<Intent> intents = new ArrayList<Intent>();
+	// Grids of the entities which never move, built by createWorld
+	private SpatialGrid obstacleGrid;
+	private SpatialGrid foodGrid;
+	private SpatialGrid denGrid;
+	// Grid and positions of the life forms ready to breed, reused each frame
+	private SpatialGrid breedingGrid;
+	private int[] readyIndexes = new int[0];
+	private double[] readyXs = new double[0];
+	private double[] readyYs = new double[0];
+	private double[] readyRs = new double[0];
+	// Whether each of them has already bred this tick
+	private boolean[] hasBredThisTick = new boolean[0];
+	// Handles of every live animal, shared by the carnivore and herbivore
+	// stores so that a handle is never given to two animals at once
+	private HandleTable handles = new HandleTable();
+	private EntityStore<Carnivore> carnivoreArray = new EntityStore<Carnivore>(handles);
+	private EntityStore<Herbivore> herbivoreArray = new EntityStore<Herbivore>(handles);
 	private ArrayList<Obstacle> obstacleArray = new ArrayList<Obstacle>();
 	private ArrayList<FoodSource> foodArray = new ArrayList<FoodSource>();
 	private ArrayList<Den> denArray = new ArrayList<Den>();
-	private boolean canAddH = false;
-	private ImagePattern backgroundImage = new ImagePattern(new Image("GrassBackGroundforLifeSim.png"));
-
-	// Global variables for start time for simulation
-	// Gets the start time for the world
-	long startTime = System.currentTimeMillis();
+	private volatile boolean canAddH = false;
 
 	/**
-	 * Adds all entities to a Group to be added to the world. Creates the scene
-	 * for the GUI and has a time line which runs cycles of the simulation
-	 * indefinitely
+	 * Runs a single cycle (one tick) of the simulation.
 	 * <p>
-	 * All timed events are handled through this method, utilising the variable
-	 * simTicks. Events controlled are, for example: detecting poisoned
+	 * All timed events are handled through this method, by running the events
+	 * of the world's scheduler due at this tick. Events controlled are, for example: detecting poisoned
 	 * entities, detecting collisions, removing dead entities from the world
 	 * amongst other events such as breeding.
-	 * 
-	 * @param primaryStage
-	 *            the stage to set the scene containing the simulation upon.
-	 * @param pane
-	 *            a vertical box used to handle the addition of the menubar and
-	 *            menu items onto the scene
-	 * @param hpane
-	 *            another vertical box to hold the toolbar and the toolbar
-	 *            buttons.
+	 * <p>
+	 * Each tick is split into two phases. Every animal is first sensed, in
+	 * parallel, deciding where it moves and what it wants to eat or hide in.
+	 * The decisions are then carried out one animal at a time, followed by
+	 * births, deaths and timed events.
+	 * <p>
+	 * Nothing here depends on wall clock time or the number of threads, so a
+	 * world run for the same number of ticks ends in the same state however
+	 * fast it was run.
+	 *
+	 * @see WorldView class which calls this method on every frame of its
+	 *      timeline.
 	 */
-	public void runWorldCycles(Stage primaryStage, VBox pane, VBox hpane) {
-		// Method to handle the addition of all entities to the world
-		Group root = new Group();
-
-		// Add all carnivores to the world
-		for (int i = 0; i < carnivoreArray.size(); i++) {
-			root.getChildren().add(carnivoreArray.get(i).getSenseRadius());
-			root.getChildren().add(carnivoreArray.get(i).getLifeFormBody());
-		}
-		// Add all herbivore to the world
-		for (int i = 0; i < herbivoreArray.size(); i++) {
-			root.getChildren().add(herbivoreArray.get(i).getSenseRadius());
-			root.getChildren().add(herbivoreArray.get(i).getLifeFormBody());
-		}
-		// Add all obstacles to the world
-		for (int i = 0; i < obstacleArray.size(); i++) {
-			root.getChildren().add(obstacleArray.get(i).getCollisionArea());
-		}
-		// Add all food to the world
-		for (int i = 0; i < foodArray.size(); i++) {
-			root.getChildren().add(foodArray.get(i).getSenseRadius());
-			root.getChildren().add(foodArray.get(i).getLifeFormBody());
+	public void runCycle() {
+		// Apply whatever the user has done since the last tick, before the
+		// clock moves on so that each input is recorded at the tick it
+		// followed
+		applyQueuedInputs();
+
+		// Keeps track of simTicks value(number of seconds since the
+		// world started
+		clock.advance();
+		// Ages are worked out from the clock, so nothing needs to be done
+		// for each life form as a new second starts
+		if (clock.isNewSecond()) {
+			simTicks = clock.getSeconds();
 		}
-		// Add all dens to the world
-		for (int i = 0; i < denArray.size(); i++) {
-			root.getChildren().add(denArray.get(i).getCollisionArea());
-			root.getChildren().add(denArray.get(i).getCollisionBody());
-		}
-		root.getChildren().add(hpane);
-		root.getChildren().add(pane);
 
-		// Create the scene
-		final Scene scene = new Scene(root, worldWidth, worldHeight);
+		// Work out what every animal does this tick, on as many threads as
+		// the world has been given
+		senseAnimals();
+		// Then carry out the eating and hiding decided upon in a fixed order
+		applyIntents();
+		// Check if a herbivore or carnivore needs to be added
+		addHerbivore();
+		addCarnivore();
+
+		// Check if a herbivore or carnivore needs to be removed
+		removeHerbivore();
+		removeCarnivore();
+
+		// Detect death of any entities and remove from the world
+		detectDeath();
+
+		// Count down any disaster that has been triggered
+		countDownDisaster();
+
+		// Detect whether animals are allowed to breed at each frame. Life
+		// forms keep track of whether their energy is high enough to breed
+		// themselves, unless the user has selected the quick breeding option
+		detectBreeding();
+
+		// Run the timed events due at this tick
+		events.runDue(clock.getTick());
+
+		// Pass the populations to the telemetry, if any, once everything in
+		// the tick has happened
+		if (telemetry != null && clock.getTick() % telemetry.getEveryTicks() == 0) {
+			recordTelemetry();
+		}
+	}
 
-		// Handles all operations by the simulation
-		KeyFrame frame = new KeyFrame(Duration.millis(16), new EventHandler<ActionEvent>() {
+	/**
+	 * Puts the periodic events of the world into its scheduler. Each event
+	 * runs once, on the first tick of every simulated second that is a
+	 * multiple of its period.
+	 */
+	private void scheduleTimedEvents() {
+		// Every 2 seconds detect poisoned entities in the world
+		scheduleEverySeconds(2, new Runnable() {
 			@Override
-			public void handle(ActionEvent t) {
-				// Keeps track of simTicks value(number of seconds since the
-				// world started
-				if (System.currentTimeMillis() > startTime + 1000) {
-					startTime = System.currentTimeMillis();
-					simTicks++;
-					System.out.println(simTicks);
-					// Increase all carnivore ages by one each second
-					for (int i = 0; i < numOfCarnivores; i++) {
-						carnivoreArray.get(i).setAge(carnivoreArray.get(i).getAge() + 1);
-					}
-					// Increase all herbivore ages by one each second
-					for (int i = 0; i < numOfHerbivores; i++) {
-						herbivoreArray.get(i).setAge(herbivoreArray.get(i).getAge() + 1);
-					}
+			public void run() {
+				detectPosion();
+			}
+		});
+		// Every 3 seconds, if an entity is stationary, move it in a
+		// random direction
+		scheduleEverySeconds(3, new Runnable() {
+			@Override
+			public void run() {
+				redirectStationary();
+			}
+		});
+	}
 
-				}
+	// Schedules an event to run every given number of simulated seconds,
+	// starting from the next multiple of its period after the current tick
+	private void scheduleEverySeconds(int seconds, Runnable action) {
+		long period = (long) seconds * SimClock.TICKS_PER_SECOND;
+		events.scheduleEvery((clock.getTick() / period + 1) * period, period, action);
+	}
 
-				// Handle collision of carnivores at each frame
-				collideCarnivores(scene, root);
-				// Handle collision of herbivores at each frame
-				collideHerbivores(scene, root);
-				// Check if a herbivore or carnivore needs to be added
-				addHerbivore(scene, root);
-				addCarnivore(scene, root);
+	// Sets any stationary life form moving in a random direction
+	private void redirectStationary() {
+		for (int i = 0; i < carnivoreArray.size(); i++) {
+			if (carnivoreArray.get(i).getDx() == 0 || carnivoreArray.get(i).getDy() == 0) {
+				carnivoreArray.get(i).getRandDxORDy();
+			}
+		}
+		for (int i = 0; i < herbivoreArray.size(); i++) {
+			if (herbivoreArray.get(i).getDx() == 0 && herbivoreArray.get(i).getDy() == 0
+					&& herbivoreArray.get(i).isVisable() == true) {
+				herbivoreArray.get(i).getRandDxORDy();
+			}
 
-				// Check if a herbivore or carnivore needs to be removed
-				removeHerbivore(scene, root);
-				removeCarnivore(scene, root);
+		}
+	}
 
-				// Detect death of any entities and remove from the world
-				detectDeath(scene, root);
+	/**
+	 * Schedules a food source that has just been eaten to grow back once its
+	 * own regrowth delay has passed. Only food that has been eaten is ever
+	 * looked at again.
+	 *
+	 * @param food
+	 *            the food source eaten this tick
+	 */
+	private void scheduleRegrowth(FoodSource food) {
+		food.setRegrowTick(clock.getTick() + food.getRegrowTicks());
+		queueRegrowth(food);
+	}
 
-				// Detect a toggle in dev mode and display if necesary
-				toggleDevMode();
+	// Puts the regrowth of a food source into the scheduler at its regrow
+	// tick
+	private void queueRegrowth(final FoodSource food) {
+		events.schedule(food.getRegrowTick(), new Runnable() {
+			@Override
+			public void run() {
+				food.setCanBeEaten(true);
+				food.setRegrowTick(-1);
+			}
+		});
+	}
 
-				// If a disaster is to be triggered
-				if (isDisaster()) {
-					// Call the disaster function
-					triggerDisaster(scene, root);
-				}
+	/**
+	 * Schedules the herbivore that has just entered a den to be sent back out
+	 * once it has hidden for long enough, and the den to be freed for another
+	 * herbivore some time after that.
+	 *
+	 * @param den
+	 *            the den entered this tick, with its occupant set
+	 */
+	private void scheduleDenTimers(Den den) {
+		den.setReleaseTick(clock.getTick() + den.getHideTicks());
+		den.setFreeTick(clock.getTick() + den.getOccupiedTicks());
+		queueDenTimers(den);
+	}
 
-				/*
-				 * Every frame, if any carnivores or herbivores energy is > //
-				 * 2000 they can breed, must be called before forced breeding
-				 */
-				for (int i = 0; i < numOfCarnivores; i++) {
-					if (carnivoreArray.get(i).getEnergy() > 2000) {
-						carnivoreArray.get(i).setReadyToBreed(true);
-					} else {
-						carnivoreArray.get(i).setReadyToBreed(false);
-					}
+	// Puts whichever of a den's timers are still due into the scheduler
+	private void queueDenTimers(final Den den) {
+		if (den.getReleaseTick() >= 0) {
+			events.schedule(den.getReleaseTick(), new Runnable() {
+				@Override
+				public void run() {
+					releaseOccupant(den);
 				}
+			});
+		}
+		if (den.getFreeTick() >= 0) {
+			events.schedule(den.getFreeTick(), new Runnable() {
+				@Override
+				public void run() {
+					den.setOccupied(false);
+					den.setFreeTick(-1);
+				}
+			});
+		}
+	}
 
-				for (int j = 0; j < numOfHerbivores; j++) {
-					if (herbivoreArray.get(j).getEnergy() > 2000) {
-						herbivoreArray.get(j).setReadyToBreed(true);
-					} else {
-						herbivoreArray.get(j).setReadyToBreed(false);
-					}
+	/**
+	 * Gets a world read from a checkpoint ready to run on from the tick it was
+	 * saved at. The entities have already been put back into the world, so
+	 * only what is worked out from them is rebuilt here: the grids of things
+	 * that never move and the scheduled events.
+	 * <p>
+	 * Timed events are not saved, each one is scheduled again from the fields
+	 * it is kept in. The periodic events keep the same place in the order
+	 * events run in, and the timers of food and dens due at the same tick
+	 * never touch the same entity, so the order they run in among themselves
+	 * makes no difference.
+	 *
+	 * @param tick
+	 *            the tick of the world's clock when it was saved
+	 * @param nextEntityStream
+	 *            the stream number to give the next entity created
+	 * @see WorldCheckpoint class
+	 */
+	void restoreCheckpoint(long tick, long nextEntityStream) {
+		clock.setTick(tick);
+		simTicks = clock.getSeconds();
+		this.nextEntityStream = nextEntityStream;
+		buildStaticGrids();
+
+		events.clear();
+		scheduleTimedEvents();
+		for (FoodSource food : foodArray) {
+			if (food.getRegrowTick() >= 0) {
+				queueRegrowth(food);
+			}
+		}
+		for (Den den : denArray) {
+			queueDenTimers(den);
+		}
+	}
 
-				}
+	// Sends the herbivore hiding in a den back out into the world, unless it
+	// has died while hiding
+	private void releaseOccupant(Den den) {
+		ALifeForm occupant = resolve(den.getOccupant());
+		if (occupant != null && occupant.isVisable() == false) {
+			// At this point its known that the herbivore is stationary
+			occupant.setVisable(true);
+			occupant.setDormant(false);
+			occupant.setDx(2.5f);
+			occupant.setDy(2.5f);
+		}
+		den.setOccupant(-1);
+		den.setReleaseTick(-1);
+	}
 
-				// If the user selects the quick breeding option
-				if (isToggleBreed()) {
-					forceBreeding(scene, root);
-				}
+	/**
+	 * Queues an input from the user, to be applied at the start of the next
+	 * tick. Can be called from any thread, and however the world is being
+	 * run each input is applied between two ticks, so a journal records
+	 * exactly when it took effect.
+	 *
+	 * @param type
+	 *            type of input, one of the input types of EventJournal
+	 * @param value
+	 *            the value of the input, 0 for inputs without one
+	 */
+	public void queueInput(int type, int value) {
+		inputs.add(new int[] { type, value });
+	}
 
-				// Detect whether animals are allowed to breed at each frame
-				detectBreeding(scene, root);
+	// Applies every input queued since the last tick, in the order queued.
+	// Also called before the world is saved, as a checkpoint does not hold
+	// inputs still waiting for the next tick
+	void applyQueuedInputs() {
+		int[] input;
+		while ((input = inputs.poll()) != null) {
+			applyInput(input[0], input[1]);
+		}
+	}
 
-				// Every 2 seconds detect poisoned entities in the world
-				if (simTicks % 2 == 0) {
-					detectPosion();
-				}
-				// Every 3 seconds, if an entity is stationary, move it in a
-				// random direction
-				if (simTicks % 3 == 0) {
-					for (int i = 0; i < carnivoreArray.size(); i++) {
-						if (carnivoreArray.get(i).getDx() == 0 || carnivoreArray.get(i).getDy() == 0) {
-							carnivoreArray.get(i).getRandDxORDy();
-						}
-					}
-					for (int i = 0; i < herbivoreArray.size(); i++) {
-						if (herbivoreArray.get(i).getDx() == 0 && herbivoreArray.get(i).getDy() == 0
-								&& herbivoreArray.get(i).isVisable() == true) {
-							herbivoreArray.get(i).getRandDxORDy();
-						}
+	/**
+	 * Applies an input from the user straight away and records it in the
+	 * journal. Must only be called between ticks, by whatever runs the world.
+	 *
+	 * @param type
+	 *            type of input, one of the input types of EventJournal
+	 * @param value
+	 *            the value of the input, 0 for inputs without one
+	 * @see Replay class which applies recorded inputs again.
+	 */
+	public void applyInput(int type, int value) {
+		journal(type, value, -1);
+		switch (type) {
+		case EventJournal.ADD_CARNIVORE:
+			setCanAddC(true);
+			break;
+		case EventJournal.ADD_HERBIVORE:
+			setCanAddH(true);
+			break;
+		case EventJournal.REMOVE_CARNIVORE:
+			setCanRemC(true);
+			break;
+		case EventJournal.REMOVE_HERBIVORE:
+			setCanRemH(true);
+			break;
+		case EventJournal.TRIGGER_DISASTER:
+			setDisaster(true);
+			break;
+		case EventJournal.SET_BREEDING:
+			setToggleBreed(value != 0);
+			break;
+		case EventJournal.EDIT_CARNIVORES:
+			editCarnivores();
+			break;
+		case EventJournal.EDIT_HERBIVORES:
+			editHerbivores();
+			break;
+		default:
+			break;
+		}
+	}
 
-					}
-				}
-				// Every 10 seconds if a foodsource has been eaten refresh the
-				// foodsource
-				if (simTicks % 10 == 0) {
-					for (int i = 0; i < foodArray.size(); i++) {
-						if (foodArray.get(i).isCanBeEaten() == false) {
-							foodArray.get(i).getLifeFormBody().setVisible(true);
-							foodArray.get(i).setCanBeEaten(true);
-						}
-					}
-				}
+	// Records an event in the journal, if the world is keeping one
+	private void journal(int type, int value, long handle) {
+		if (journal != null) {
+			journal.record(clock.getTick(), type, value, handle);
+		}
+	}
 
-				// Every 20 seconds detect if a herbivore is occupying a den and
-				// eject them
-				if (simTicks % 20 == 0) {
-					for (int h = 0; h < herbivoreArray.size(); h++) {
-						// At this point its known that the herbivore is
-						// stationary
-						if (herbivoreArray.get(h).isVisable() == false) {
-							herbivoreArray.get(h).setVisable(true);
-							herbivoreArray.get(h).getLifeFormBody().setVisible(true);
-							herbivoreArray.get(h).setDx(2.5f);
-							herbivoreArray.get(h).setDy(2.5f);
-						}
-					}
-				}
-				// Every 25 seconds set the dens to available again if they were
-				// occupied
-				if (simTicks % 25 == 0) {
-					for (int i = 0; i < denArray.size(); i++) {
-						if (denArray.get(i).isOccupied() == true) {
-							denArray.get(i).setOccupied(false);
-						}
-					}
-				}
+	// Records the birth of a life form, kind being CARNIVORE or HERBIVORE
+	private void recordBirth(ALifeForm lifeForm, int kind) {
+		births++;
+		journal(EventJournal.BORN, kind, lifeForm.getHandle());
+	}
+
+	// Records the death of a life form, kind being CARNIVORE or HERBIVORE
+	private void recordDeath(ALifeForm lifeForm, int kind, int cause) {
+		deaths++;
+		journal(EventJournal.DIED, kind + cause * 2, lifeForm.getHandle());
+	}
 
+	// Gives the telemetry a row for the current tick. Only run on the ticks
+	// a row is wanted, as it goes through every life form
+	private void recordTelemetry() {
+		long carnivoreEnergy = 0;
+		long herbivoreEnergy = 0;
+		int poisoned = 0;
+		for (int i = 0; i < carnivoreArray.size(); i++) {
+			Carnivore carnivore = carnivoreArray.get(i);
+			carnivoreEnergy += carnivore.getEnergy();
+			if (carnivore.isPoisoned()) {
+				poisoned++;
+			}
+		}
+		for (int i = 0; i < herbivoreArray.size(); i++) {
+			Herbivore herbivore = herbivoreArray.get(i);
+			herbivoreEnergy += herbivore.getEnergy();
+			if (herbivore.isPoisoned()) {
+				poisoned++;
 			}
+		}
+		int carnivores = carnivoreArray.size();
+		int herbivores = herbivoreArray.size();
+		int total = carnivores + herbivores;
+		telemetry.record(clock.getTick(), carnivores, herbivores,
+				carnivores == 0 ? 0 : (float) carnivoreEnergy / carnivores,
+				herbivores == 0 ? 0 : (float) herbivoreEnergy / herbivores, total == 0 ? 0 : (float) poisoned / total,
+				births, deaths);
+		births = 0;
+		deaths = 0;
+	}
 
-		});
-		// Set the animation to run indefinietely
-		circleTimeLine.setCycleCount(Timeline.INDEFINITE);
-		circleTimeLine.getKeyFrames().add(frame);
-		circleTimeLine.setRate(1.5);
-		// Set up and show the world stage
-		primaryStage.setTitle("Artificial Life Simulator");
-		scene.setFill(this.backgroundImage);
-		primaryStage.setScene(scene);
-		primaryStage.setHeight(worldHeight);
-		primaryStage.setWidth(worldWidth);
-		primaryStage.setResizable(false);
-		primaryStage.setX(worldWidth / 3);
-		primaryStage.show();
+	/**
+	 * Advances the world by a number of ticks as fast as possible. Nothing is
+	 * drawn while the ticks run and the method only returns once they have all
+	 * been run, so it can be used without any stage or timeline.
+	 *
+	 * @param ticks
+	 *            the number of ticks to run, there are SimClock.TICKS_PER_SECOND
+	 *            ticks in each simulated second
+	 * @see BatchRun class for running worlds from the command line.
+	 */
+	public void fastForward(long ticks) {
+		for (long i = 0; i < ticks; i++) {
+			runCycle();
+		}
 	}
 
 	// Constructor to handle initial setup of world and parameters
@@ -264,9 +480,9 @@ public class SimWorld {
 		numOfHerbivores = herbivores;
 		numOfObstacles = obstacles;
 		numOfFood = food;
-		simTicks = 0; // Used later to record duration of simulation and to
-						// handle random events
+		simTicks = 0; // Used later to record duration of simulation
 		totalLifeforms = numOfCarnivores + numOfHerbivores;
+		scheduleTimedEvents();
 	}
 
 	/**
@@ -312,437 +528,641 @@ public class SimWorld {
 			FoodSource newFood = new FoodSource(this);
 			foodArray.add(newFood);
 		}
+
+		buildStaticGrids();
+	}
+
+	/**
+	 * Puts the obstacles, food and dens into grids so collisions with them
+	 * only check the ones nearby. None of these ever move, so the grids are
+	 * built once when the world is created and never changed.
+	 */
+	private void buildStaticGrids() {
+		double[] xs = new double[obstacleArray.size()];
+		double[] ys = new double[obstacleArray.size()];
+		double[] rs = new double[obstacleArray.size()];
+		for (int i = 0; i < obstacleArray.size(); i++) {
+			xs[i] = obstacleArray.get(i).getxPos();
+			ys[i] = obstacleArray.get(i).getyPos();
+			rs[i] = obstacleArray.get(i).getCollisionRadius();
+		}
+		obstacleGrid = createStaticGrid(xs, ys, rs);
+
+		xs = new double[foodArray.size()];
+		ys = new double[foodArray.size()];
+		rs = new double[foodArray.size()];
+		for (int i = 0; i < foodArray.size(); i++) {
+			xs[i] = foodArray.get(i).getxPos();
+			ys[i] = foodArray.get(i).getyPos();
+			rs[i] = foodArray.get(i).getRadius();
+		}
+		foodGrid = createStaticGrid(xs, ys, rs);
+
+		xs = new double[denArray.size()];
+		ys = new double[denArray.size()];
+		rs = new double[denArray.size()];
+		for (int i = 0; i < denArray.size(); i++) {
+			xs[i] = denArray.get(i).getxPos();
+			ys[i] = denArray.get(i).getyPos();
+			rs[i] = denArray.get(i).getBodyRadius();
+		}
+		denGrid = createStaticGrid(xs, ys, rs);
+	}
+
+	// Creates a grid over the world holding the given circles
+	private SpatialGrid createStaticGrid(double[] xs, double[] ys, double[] rs) {
+		SpatialGrid grid = new SpatialGrid(worldWidth, worldHeight, SENSE_CELL_SIZE);
+		grid.build(xs, ys, rs, xs.length);
+		return grid;
+	}
+
+	/**
+	 * Creates the random generator for a new entity. Entities are given
+	 * stream numbers in the order they are created, so a world created from
+	 * the same seed gives every entity the same numbers.
+	 *
+	 * @return a generator for the entity's own use
+	 * @see SimRandom class
+	 */
+	public SimRandom createEntityRandom() {
+		return createRandom(nextEntityStream++);
+	}
+
+	/**
+	 * Restarts the random generator of a reused entity on the next entity
+	 * stream, giving it the same numbers a newly created entity would get.
+	 *
+	 * @param rnd
+	 *            the generator of the entity being reused
+	 */
+	public void reseedEntityRandom(SimRandom rnd) {
+		rnd.setSeed(SimRandom.seedFor(seed, nextEntityStream++));
+	}
+
+	/**
+	 * Creates the random generator for a stream of the world. Streams zero and
+	 * above are used by entities, subsystems of the world should use negative
+	 * stream numbers.
+	 *
+	 * @param streamId
+	 *            the number of the stream
+	 * @return a generator independent from every other stream of the world
+	 */
+	public SimRandom createRandom(long streamId) {
+		return SimRandom.forStream(seed, streamId);
 	}
 
 	/**
-	 * Handles the collisions necessary for herbivores in the array list to
-	 * interact with other items on the map. Primarily deals with collisions on
-	 * the world edges (scene width and scene height). Also deals with when a
-	 * herbivore collides with one of the following: a food source; a den and an
-	 * obstacle.
+	 * Works out what every animal does this tick. Each animal bounces off the
+	 * world borders and obstacles, moves, and steers towards what it can
+	 * sense, but anything it touches and wants to eat or hide in is only
+	 * written into its Intent.
 	 * <p>
-	 * Calls the move function in a life form to translate each entities
-	 * position in the next frame of the animation. Sensing events are handled
-	 * in the world class as they are modelled as collisions of objects in array
-	 * lists.
-	 * 
-	 * @param scene
-	 *            the scene possessed by the current world which is used to get
-	 *            world specific data.
-	 * @param root
-	 *            the group of all items on the map.
+	 * The world is split into regions and each region is sensed as a separate
+	 * piece of work on the sense pool. Nothing shared is changed while animals
+	 * are sensed. Carnivores read herbivores from their region's copy of them,
+	 * and herbivores read food and dens, which only applyIntents changes.
+	 * Animals can therefore be sensed on any number of threads, in any order,
+	 * with the same results.
+	 *
+	 * @see applyIntents method which carries out the intents afterwards.
+	 * @see Region class
 	 */
-	public void collideHerbivores(Scene scene, Group root) {
-		// For all herbivores in the map
-		for (int i = 0; i < herbivoreArray.size(); i++) {
-			if (herbivoreArray.get(i).getLifeFormBody().getCenterX()
-					+ herbivoreArray.get(i).getLifeFormBody().getTranslateX() < herbivoreArray.get(i).getLifeFormBody()
-							.getRadius()
-					|| herbivoreArray.get(i).getLifeFormBody().getCenterX()
-							+ herbivoreArray.get(i).getLifeFormBody().getTranslateX()
-							+ herbivoreArray.get(i).getLifeFormBody().getRadius() > scene.getWidth()) {
-				// Deal with collisions off of the world horizontal borders and
-				// lose energy
-				herbivoreArray.get(i).setDx(herbivoreArray.get(i).getDx() * -1);
-				herbivoreArray.get(i).expendEnergy(100);
+	public void senseAnimals() {
+		if (regions == null) {
+			createRegions();
+		}
+		int animals = carnivoreArray.size() + herbivoreArray.size();
+		while (intents.size() < animals) {
+			intents.add(new Intent());
+		}
+
+		// Hand every animal to the region it is in now
+		fillRegions();
+		if (regions.length > 1) {
+			if (sensePool == null) {
+				sensePool = new ForkJoinPool(threads);
 			}
+			sensePool.invoke(new SenseTask(0, regions.length));
+		} else {
+			senseRegion(regions[0]);
+		}
+	}
+
+	/**
+	 * Splits the world into a grid of regions, aiming for a few regions for
+	 * each thread. A world sensed on one thread is a single region.
+	 */
+	private void createRegions() {
+		int wanted = threads == 1 ? 1 : threads * REGIONS_PER_THREAD;
+		regionColumns = (int) Math.max(1, Math.min(Math.ceil(Math.sqrt(wanted)), worldWidth / MIN_REGION_SIZE));
+		regionRows = (int) Math.max(1,
+				Math.min(Math.ceil((double) wanted / regionColumns), worldHeight / MIN_REGION_SIZE));
+		regionWidth = (double) worldWidth / regionColumns;
+		regionHeight = (double) worldHeight / regionRows;
+		regions = new Region[regionColumns * regionRows];
+		for (int r = 0; r < regionRows; r++) {
+			for (int c = 0; c < regionColumns; c++) {
+				regions[r * regionColumns + c] = new Region(c * regionWidth, r * regionHeight, regionWidth,
+						regionHeight, SENSE_CELL_SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Gives each animal to the region its centre is in, which is where
+	 * animals that crossed a border in the last tick migrate. Also copies
+	 * every herbivore, both for the carnivores to read and into each region
+	 * it could be sensed from. Those are its own region and, as a ghost, any
+	 * neighbouring region whose border is within reach of a carnivore's
+	 * senses.
+	 * <p>
+	 * Dormant animals are the inactive set and are not given to any region,
+	 * so they are neither sensed nor can be sensed until they wake. However
+	 * many animals are dormant, they cost nothing more than being skipped
+	 * here.
+	 */
+	private void fillRegions() {
+		for (Region region : regions) {
+			region.clear();
+		}
 
-			if (herbivoreArray.get(i).getLifeFormBody().getCenterY()
-					+ herbivoreArray.get(i).getLifeFormBody().getTranslateY() < herbivoreArray.get(i).getLifeFormBody()
-							.getRadius()
-					|| herbivoreArray.get(i).getLifeFormBody().getCenterY()
-							+ herbivoreArray.get(i).getLifeFormBody().getTranslateY()
-							+ herbivoreArray.get(i).getLifeFormBody().getRadius() > scene.getHeight()) {
-				// Deal with collisions off of the world vertical borders and
-				// lose energy
-				herbivoreArray.get(i).setDy(herbivoreArray.get(i).getDy() * -1);
-				herbivoreArray.get(i).expendEnergy(100);
+		// Carnivores take a step before sensing, so the furthest a carnivore
+		// can sense from its region is its sense range plus that step
+		double reach = 0;
+		for (int i = 0; i < carnivoreArray.size(); i++) {
+			Carnivore carnivore = carnivoreArray.get(i);
+			if (carnivore.isDormant()) {
+				continue;
 			}
+			regionAt(carnivore.getXpos(), carnivore.getYpos()).addCarnivore(i);
+			reach = Math.max(reach, carnivore.getSenseRange()
+					+ Math.max(Math.abs(carnivore.getDx()), Math.abs(carnivore.getDy())));
+		}
 
-			// Handle moving throughout the world
-			herbivoreArray.get(i).move();
-
-			// If a herbivore collides with an obstacle
-			for (int k = 0; k < obstacleArray.size(); k++) {
-				if (hasCollided(herbivoreArray.get(i).getLifeFormBody(),
-						obstacleArray.get(k).getCollisionArea()) == true) {
-					// Bounce off the obstacle and expend energy
-					herbivoreArray.get(i).setDx(herbivoreArray.get(i).getDx() * -1);
-					herbivoreArray.get(i).setDy(herbivoreArray.get(i).getDy() * -1);
-					herbivoreArray.get(i).expendEnergy(100);
+		if (herbivoreXs.length < herbivoreArray.size()) {
+			herbivoreXs = new double[herbivoreArray.size() * 2];
+			herbivoreYs = new double[herbivoreArray.size() * 2];
+			herbivoreRs = new double[herbivoreArray.size() * 2];
+			herbivoreVisible = new boolean[herbivoreArray.size() * 2];
+			herbivorePoisoned = new boolean[herbivoreArray.size() * 2];
+		}
+		for (int j = 0; j < herbivoreArray.size(); j++) {
+			Herbivore herbivore = herbivoreArray.get(j);
+			if (herbivore.isDormant()) {
+				continue;
+			}
+			double x = herbivore.getXpos();
+			double y = herbivore.getYpos();
+			herbivoreXs[j] = x;
+			herbivoreYs[j] = y;
+			herbivoreRs[j] = herbivore.getRadius();
+			herbivoreVisible[j] = herbivore.isVisable();
+			herbivorePoisoned[j] = herbivore.isPoisoned();
+			regionAt(x, y).addHerbivore(j);
+
+			// Add the herbivore to every region it could be sensed from, plus
+			// a little to allow for rounding
+			double margin = reach + herbivore.getRadius() + 1;
+			for (int r = regionRow(y - margin); r <= regionRow(y + margin); r++) {
+				for (int c = regionColumn(x - margin); c <= regionColumn(x + margin); c++) {
+					regions[r * regionColumns + c].addSensed(j, x, y, herbivore.getRadius());
 				}
 			}
+		}
+	}
 
-			// If a herbivore collides with a food sense area
-			for (int l = 0; l < foodArray.size(); l++) {
-				if (hasCollided(herbivoreArray.get(i).getSenseRadius(), foodArray.get(l).getLifeFormBody())
-						&& foodArray.get(l).isCanBeEaten() == true && herbivoreArray.get(i).isVisable() == true) {
-					// If the X translation vector of the herbivore is greater
-					// than the current food being checked
-					if (herbivoreArray.get(i).getLifeFormBody().getCenterX() + herbivoreArray.get(i).getLifeFormBody()
-							.getTranslateX() > foodArray.get(l).getLifeFormBody().getCenterX()
-									+ foodArray.get(l).getLifeFormBody().getTranslateX()) {
-						// reverse the direction of movement toward the food
-						herbivoreArray.get(i).setDx(-2.5f);
+	// Region containing a position, positions outside the world are given to
+	// the nearest region
+	private Region regionAt(double x, double y) {
+		return regions[regionRow(y) * regionColumns + regionColumn(x)];
+	}
 
-					} else {
-						// speed up towards the herbivore
-						herbivoreArray.get(i).setDx(2.5f);
+	private int regionColumn(double x) {
+		return Math.min(regionColumns - 1, Math.max(0, (int) Math.floor(x / regionWidth)));
+	}
 
-					}
-					// If the Y translation vector of the herbivore is greater
-					// than that of the current food being checked
-					if (herbivoreArray.get(i).getLifeFormBody().getCenterY() + herbivoreArray.get(i).getLifeFormBody()
-							.getTranslateY() > foodArray.get(l).getLifeFormBody().getCenterY()
-									+ foodArray.get(l).getLifeFormBody().getTranslateY()) {
-						// Reverse the direction of movement towards herbivore
-						herbivoreArray.get(i).setDy(-2.5f);
+	private int regionRow(double y) {
+		return Math.min(regionRows - 1, Math.max(0, (int) Math.floor(y / regionHeight)));
+	}
 
-					} else {
-						// speed up towards the herbivore
-						herbivoreArray.get(i).setDy(2.5f);
+	/**
+	 * Senses a range of regions, splitting the range in half and handing one
+	 * half to another thread until there is a single region left.
+	 */
+	private class SenseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int from;
+		private int to;
+
+		SenseTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
 
-					}
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SenseTask(from, middle), new SenseTask(middle, to));
+			} else {
+				senseRegion(regions[from]);
+			}
+		}
+	}
 
-					// If a herbivore collides with the body of the food
-					if (hasCollided(herbivoreArray.get(i).getLifeFormBody(),
-							foodArray.get(l).getLifeFormBody()) == true) {
-						// if food is poisonous and the bug cannot detect that
-						if (foodArray.get(l).isPoisonous() && herbivoreArray.get(i).getIntelligenceLvl() < 0.7) {
-							// eat food and poison bug
-							herbivoreArray.get(i).setPoisoned(true);
-							foodArray.get(l).setCanBeEaten(false);
-							foodArray.get(l).getLifeFormBody().setVisible(false);
-							// try getimagepattern from foodsource and swapping
-							// with long/ short grass depending on the value of
-							// iseaten
-
-							// Prevent the herbivore from moving shortly after
-							// eating
-							herbivoreArray.get(i).setDx(0.0f);
-							herbivoreArray.get(i).setDy(0.0f);
-						} else { // eat around the poisoned food and gain
-									// nutrition
-							foodArray.get(l).setCanBeEaten(false);
-							foodArray.get(l).getLifeFormBody().setVisible(false);
-
-							// Prevent the herbivore from moving shortly after
-							// eating
-							herbivoreArray.get(i).setDx(0.0f);
-							herbivoreArray.get(i).setDy(0.0f);
-
-						}
-						herbivoreArray.get(i).gainEnergy(foodArray.get(l).getCalories());
-					}
+	// Senses every animal owned by a region. Intents are kept in world order
+	// with carnivores first
+	private void senseRegion(Region region) {
+		region.buildGrid();
+		for (int i = 0; i < region.getCarnivoreCount(); i++) {
+			int index = region.getCarnivores()[i];
+			Intent intent = intents.get(index);
+			intent.clear();
+			senseCarnivore(carnivoreArray.get(index), intent, region);
+		}
+		for (int j = 0; j < region.getHerbivoreCount(); j++) {
+			int index = region.getHerbivores()[j];
+			Intent intent = intents.get(carnivoreArray.size() + index);
+			intent.clear();
+			senseHerbivore(herbivoreArray.get(index), intent, region.getQuery());
+		}
+	}
+
+	/**
+	 * Senses a single herbivore. Deals with collisions on the world edges
+	 * (world width and world height) and with obstacles, then steers the
+	 * herbivore towards any food source or den it senses. Food and dens the
+	 * herbivore touches are added to its intent rather than eaten or entered
+	 * here.
+	 * <p>
+	 * Calls the move function in a life form to translate each entities
+	 * position in the next frame of the animation. Sensing events are handled
+	 * in the world class as they are modelled as collisions of objects in array
+	 * lists.
+	 */
+	private void senseHerbivore(Herbivore herbivore, Intent intent, SpatialGrid.Query query) {
+		if (herbivore.getXpos() < herbivore.getRadius() || herbivore.getXpos() + herbivore.getRadius() > worldWidth) {
+			// Deal with collisions off of the world horizontal borders and
+			// lose energy
+			herbivore.setDx(herbivore.getDx() * -1);
+			herbivore.expendEnergy(100);
+		}
+
+		if (herbivore.getYpos() < herbivore.getRadius()
+				|| herbivore.getYpos() + herbivore.getRadius() > worldHeight) {
+			// Deal with collisions off of the world vertical borders and
+			// lose energy
+			herbivore.setDy(herbivore.getDy() * -1);
+			herbivore.expendEnergy(100);
+		}
+
+		// Handle moving throughout the world
+		herbivore.move();
+
+		// If a herbivore collides with an obstacle
+		int obstaclesFound = obstacleGrid.queryOverlapping(herbivore.getXpos(), herbivore.getYpos(),
+				herbivore.getRadius(), query);
+		for (int k = 0; k < obstaclesFound; k++) {
+			// Bounce off the obstacle and expend energy
+			herbivore.setDx(herbivore.getDx() * -1);
+			herbivore.setDy(herbivore.getDy() * -1);
+			herbivore.expendEnergy(100);
+		}
+
+		// If a herbivore collides with a food sense area
+		int foodFound = foodGrid.queryOverlapping(herbivore.getXpos(), herbivore.getYpos(),
+				herbivore.getSenseRange(), query);
+		int[] nearbyFood = query.getResult();
+		for (int l = 0; l < foodFound; l++) {
+			FoodSource food = foodArray.get(nearbyFood[l]);
+			if (food.isCanBeEaten() == true && herbivore.isVisable() == true) {
+				// If the X position of the herbivore is greater than the
+				// current food being checked
+				if (herbivore.getXpos() > food.getxPos()) {
+					// reverse the direction of movement toward the food
+					herbivore.setDx(-2.5f);
+
+				} else {
+					// speed up towards the herbivore
+					herbivore.setDx(2.5f);
 
 				}
+				// If the Y position of the herbivore is greater than that
+				// of the current food being checked
+				if (herbivore.getYpos() > food.getyPos()) {
+					// Reverse the direction of movement towards herbivore
+					herbivore.setDy(-2.5f);
+
+				} else {
+					// speed up towards the herbivore
+					herbivore.setDy(2.5f);
+
+				}
+
+				// If a herbivore collides with the body of the food, try to
+				// eat it once every animal has been sensed
+				if (hasCollided(herbivore.getXpos(), herbivore.getYpos(), herbivore.getRadius(), food.getxPos(),
+						food.getyPos(), food.getRadius()) == true) {
+					intent.addEat(nearbyFood[l]);
+
+					// Prevent the herbivore from moving shortly after
+					// eating
+					herbivore.setDx(0.0f);
+					herbivore.setDy(0.0f);
+				}
 
 			}
-			// If a herbivore collides with a den and it is not occupied
-			for (int m = 0; m < denArray.size(); m++) {
-				if (hasCollided(herbivoreArray.get(i).getSenseRadius(), denArray.get(m).getCollisionBody())
-						&& denArray.get(m).isOccupied() == false) {
-					// If the X translation vector of the herbivore is greater
-					// than the den
-					if (herbivoreArray.get(i).getLifeFormBody().getCenterX() + herbivoreArray.get(i).getLifeFormBody()
-							.getTranslateX() > denArray.get(m).getCollisionBody().getCenterX()
-									+ denArray.get(m).getCollisionBody().getTranslateX()) {
-						// reverse the direction of movement toward the den
-						herbivoreArray.get(i).setDx(-2.5f);
+
+		}
+		// If a herbivore collides with a den and it is not occupied
+		int densFound = denGrid.queryOverlapping(herbivore.getXpos(), herbivore.getYpos(),
+				herbivore.getSenseRange(), query);
+		int[] nearbyDens = query.getResult();
+		for (int m = 0; m < densFound; m++) {
+			Den den = denArray.get(nearbyDens[m]);
+			if (den.isOccupied() == false) {
+				// If the X position of the herbivore is greater than the
+				// den
+				if (herbivore.getXpos() > den.getxPos()) {
+					// reverse the direction of movement toward the den
+					herbivore.setDx(-2.5f);
+				} else {
+					// speed up towards the den
+					herbivore.setDx(2.5f);
+				}
+				// If the Y position of the herbivore is higher than that of
+				// the current den being checked
+				if (herbivore.getYpos() > den.getyPos()) {
+					// Reverse the direction of movement towards the den
+					herbivore.setDy(-2.5f);
+					herbivore.expendEnergy(1);
+				} else {
+					// speed up towards the den
+					herbivore.setDy(2.5f);
+					herbivore.expendEnergy(1);
+				}
+				if (hasCollided(herbivore.getXpos(), herbivore.getYpos(), herbivore.getRadius(), den.getxPos(),
+						den.getyPos(), den.getBodyRadius()) == true) {
+					// Try to hide in the den once every animal has been
+					// sensed
+					intent.addHide(nearbyDens[m]);
+
+					// Prevent the herbivore from moving until ejected by
+					// the den in world
+					herbivore.setDx(0.0f);
+					herbivore.setDy(0.0f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Senses a single carnivore. As with the herbivores, it handles collision
+	 * with the world borders first, then steers towards the herbivores it
+	 * senses and bounces off obstacles. Herbivores the carnivore touches are
+	 * added to its intent rather than eaten here.
+	 * <p>
+	 * Herbivores are read from the copy made at the start of the tick, as
+	 * they are being moved by other threads at the same time.
+	 */
+	private void senseCarnivore(Carnivore carnivore, Intent intent, Region region) {
+		SpatialGrid.Query query = region.getQuery();
+		if (carnivore.getXpos() < carnivore.getRadius() || carnivore.getXpos() + carnivore.getRadius() > worldWidth) {
+			// Handle collisions with horizontal world boundaries
+			carnivore.setDx(carnivore.getDx() * -1);
+			carnivore.expendEnergy(100);
+		}
+		if (carnivore.getYpos() < carnivore.getRadius()
+				|| carnivore.getYpos() + carnivore.getRadius() > worldHeight) {
+			// Handle collisions with vertical world boundaries
+			carnivore.setDy(carnivore.getDy() * -1);
+			carnivore.expendEnergy(100);
+		}
+		// Move the carnivores
+		carnivore.move();
+
+		// Herbivores whose bodies overlap the sense radius, in array order
+		int found = region.querySensed(carnivore.getXpos(), carnivore.getYpos(), carnivore.getSenseRange());
+		int[] nearby = query.getResult();
+		for (int n = 0; n < found; n++) {
+			int h = nearby[n];
+			if (herbivoreVisible[h] == true) {
+				if (herbivorePoisoned[h] && carnivore.getIntelligenceLvl() > 0.7) {
+					// If the herbivore is poisoned and the carnivore is
+					// intelligent enough, ignore the herbivore
+					carnivore.setDx(carnivore.getDx() * -1);
+					carnivore.setDy(carnivore.getDy() * -1);
+				} else {
+					// Otherwise the carnivore goes for the herbivore, even if
+					// it is poisoned
+					// If the X position of the carnivore is higher than
+					// that of the current herbivore being checked
+					if (carnivore.getXpos() > herbivoreXs[h]) {
+						// reverse the direction of movement toward
+						// herbivore
+						carnivore.setDx(-2.0f);
 					} else {
-						// speed up towards the den
-						herbivoreArray.get(i).setDx(2.5f);
+						// speed up towards the herbivore
+						carnivore.setDx(2.0f);
 					}
-					// If the Y translation vector of the herbivore is higher
-					// than that of the current den being checked
-					if (herbivoreArray.get(i).getLifeFormBody().getCenterY() + herbivoreArray.get(i).getLifeFormBody()
-							.getTranslateY() > denArray.get(m).getCollisionBody().getCenterY()
-									+ denArray.get(m).getCollisionBody().getTranslateY()) {
-						// Reverse the direction of movement towards the den
-						herbivoreArray.get(i).setDy(-2.5f);
-						herbivoreArray.get(i).expendEnergy(1);
+					// If the Y position of the carnivore is higher than
+					// that of the current herbivore being checked
+					if (carnivore.getYpos() > herbivoreYs[h]) {
+						// Reverse the direction of movement towards
+						// herbivore
+						carnivore.setDy(-2.0f);
 					} else {
-						// speed up towards the den
-						herbivoreArray.get(i).setDy(2.5f);
-						herbivoreArray.get(i).expendEnergy(1);
+						// speed up towards the herbivore
+						carnivore.setDy(2.0f);
 					}
-					if (hasCollided(herbivoreArray.get(i).getLifeFormBody(),
-							denArray.get(m).getCollisionBody()) == true) {
-						// If the herbivore has collided with the den set the
-						// den to occupied, and hide the bug from the map
-						denArray.get(m).setOccupied(true);
-						herbivoreArray.get(i).setVisable(false);
-						herbivoreArray.get(i).getLifeFormBody().setVisible(false);
-
-						// Prevent the herbivore from moving until ejected by
-						// the den in world
-						herbivoreArray.get(i).setDx(0.0f);
-						herbivoreArray.get(i).setDy(0.0f);
-
-						// Lose energy upon entering the den
-						herbivoreArray.get(i).expendEnergy(100);
 
+					// If the carnivore and herbivore have collided, try to
+					// eat the herbivore once every animal has been sensed
+					if (hasCollided(carnivore.getXpos(), carnivore.getYpos(), carnivore.getRadius(), herbivoreXs[h],
+							herbivoreYs[h], herbivoreRs[h]) == true) {
+						intent.addEat(h);
+						// Prevent the carnivore from moving after eating
+						carnivore.setDx(0.0f);
+						carnivore.setDy(0.0f);
 					}
 				}
 			}
 		}
-
+		// If a carnivore collides with an obstacle bounce off
+		int obstaclesFound = obstacleGrid.queryOverlapping(carnivore.getXpos(), carnivore.getYpos(),
+				carnivore.getRadius(), query);
+		for (int k = 0; k < obstaclesFound; k++) {
+			carnivore.setDx(carnivore.getDx() * -1);
+			carnivore.setDy(carnivore.getDy() * -1);
+			carnivore.expendEnergy(100);
+		}
 	}
 
 	/**
-	 * Handles the collisions necessary for carnivores in the array list to
-	 * interact with other items on the map. As with the herbivores, it handles
-	 * collision with the world borders first, then with herbivores and
-	 * obstacles.
+	 * Carries out the intents of every animal sensed this tick, one animal at
+	 * a time in array order so that the result never depends on how the
+	 * sensing was split between threads. Carnivores go first, so a herbivore
+	 * wanted by two carnivores is eaten by the first one and a herbivore eaten
+	 * this tick does not eat or hide. Likewise a food source or den wanted by
+	 * two herbivores goes to the first one.
 	 * <p>
-	 * Calls the move function in a life form to translate each entities
-	 * position in the next frame of the animation. Also handles the removal of
-	 * killed entities once they have been eaten.
-	 * 
-	 * @param scene
-	 *            the scene possessed by the current world which is used to get
-	 *            world specific data.
-	 * @param root
-	 *            the group of all items on the map, used to get the correct
-	 *            object in the group to remove upon a herbivores death
+	 * Also handles the removal of killed herbivores once they have been eaten.
 	 */
-	public void collideCarnivores(Scene scene, Group root) {
-		// For all carnivores in the map
-		for (int i = 0; i < carnivoreArray.size(); i++) {
-			if (carnivoreArray.get(i).getLifeFormBody().getCenterX()
-					+ carnivoreArray.get(i).getLifeFormBody().getTranslateX() < carnivoreArray.get(i).getLifeFormBody()
-							.getRadius()
-					|| carnivoreArray.get(i).getLifeFormBody().getCenterX()
-							+ carnivoreArray.get(i).getLifeFormBody().getTranslateX()
-							+ carnivoreArray.get(i).getLifeFormBody().getRadius() > scene.getWidth()) {
-				// Handle collisions with horizontal world boundaries
-				carnivoreArray.get(i).setDx(carnivoreArray.get(i).getDx() * -1);
-				carnivoreArray.get(i).expendEnergy(100);
+	public void applyIntents() {
+		int carnivores = carnivoreArray.size();
+		for (int i = 0; i < carnivores; i++) {
+			Carnivore carnivore = carnivoreArray.get(i);
+			// Dormant animals were not sensed, so have no intent this tick
+			if (carnivore.isDormant()) {
+				continue;
 			}
-			if (carnivoreArray.get(i).getLifeFormBody().getCenterY()
-					+ carnivoreArray.get(i).getLifeFormBody().getTranslateY() < carnivoreArray.get(i).getLifeFormBody()
-							.getRadius()
-					|| carnivoreArray.get(i).getLifeFormBody().getCenterY()
-							+ carnivoreArray.get(i).getLifeFormBody().getTranslateY()
-							+ carnivoreArray.get(i).getLifeFormBody().getRadius() > scene.getHeight()) {
-				// Handle collisions with vertical world boundaries
-				carnivoreArray.get(i).setDy(carnivoreArray.get(i).getDy() * -1);
-				carnivoreArray.get(i).expendEnergy(100);
+			Intent intent = intents.get(i);
+			for (int e = 0; e < intent.getEatCount(); e++) {
+				Herbivore herbivore = herbivoreArray.get(intent.getEats()[e]);
+				// Skip herbivores already eaten this tick
+				if (herbivore.isDead()) {
+					continue;
+				}
+				herbivoreArray.kill(intent.getEats()[e]);
+				numOfHerbivores--;
+				recordDeath(herbivore, EventJournal.HERBIVORE, EventJournal.EATEN);
+				if (herbivore.isPoisoned() && carnivore.getIntelligenceLvl() < 0.7) {
+					// Once eaten, poison the carnivore
+					if (!carnivore.isPoisoned()) {
+						journal(EventJournal.POISONED, EventJournal.CARNIVORE, carnivore.getHandle());
+					}
+					carnivore.setPoisoned(true);
+				} else {
+					carnivore.gainEnergy(herbivore.getFlavour());
+				}
 			}
-			// Move the carnivores
-			carnivoreArray.get(i).move();
-
-			for (int j = 0; j < herbivoreArray.size(); j++) {
-
-				// Check collision between carnivore sense radius and herbivore
-				// body
-				if (hasCollided(carnivoreArray.get(i).getSenseRadius(), herbivoreArray.get(j).getLifeFormBody()) == true
-						&& herbivoreArray.get(j).isVisable() == true) {
-					if (herbivoreArray.get(j).isPoisoned() && carnivoreArray.get(i).getIntelligenceLvl() < 0.7) {
-						// If the herbivore being checked is poisoned and the
-						// intelligence of the carnivore is low
-						// If the X translation vector of the carnivore is
-						// higher than that of the current herbivore being
-						// checked
-						if (carnivoreArray.get(i).getLifeFormBody().getCenterX()
-								+ carnivoreArray.get(i).getLifeFormBody().getTranslateX() > herbivoreArray.get(j)
-										.getLifeFormBody().getCenterX()
-										+ herbivoreArray.get(j).getLifeFormBody().getTranslateX()) {
-							// reverse the direction of movement toward
-							// herbivore
-							carnivoreArray.get(i).setDx(-2.0f);
-						} else {
-							// speed up towards the herbivore
-							carnivoreArray.get(i).setDx(2.0f);
-						}
-						// If the Y translation vector of the carnivore is
-						// higher than that of the current herbivore being
-						// checked
-						if (carnivoreArray.get(i).getLifeFormBody().getCenterY()
-								+ carnivoreArray.get(i).getLifeFormBody().getTranslateY() > herbivoreArray.get(j)
-										.getLifeFormBody().getCenterY()
-										+ herbivoreArray.get(j).getLifeFormBody().getTranslateY()) {
-							// Reverse the direction of movement towards
-							// herbivore
-							carnivoreArray.get(i).setDy(-2.0f);
-						} else {
-							// speed up towards the herbivore
-							carnivoreArray.get(i).setDy(2.0f);
-						}
-
-						if (hasCollided(carnivoreArray.get(i).getLifeFormBody(),
-								herbivoreArray.get(j).getLifeFormBody()) == true) {
-							// Once eaten, poison the carnivore
-							carnivoreArray.get(i).setPoisoned(true);
-							root.getChildren().remove(herbivoreArray.get(j).getLifeFormBody());
-							root.getChildren().remove(herbivoreArray.get(j).getSenseRadius());
-							herbivoreArray.get(j).setDead(true);
-							herbivoreArray.remove(j);
-							numOfHerbivores--;
-
-							// Prevent the carnivore from moving after eating
-							carnivoreArray.get(i).setDx(0.0f);
-							carnivoreArray.get(i).setDy(0.0f);
-
-						}
-					} else if (herbivoreArray.get(j).isPoisoned() && carnivoreArray.get(i).getIntelligenceLvl() > 0.7) {
-						// If the herbivore is poisoned and the carnivore is
-						// intelligent enough, ignore the herbivore
-						carnivoreArray.get(i).setDx(carnivoreArray.get(i).getDx() * -1);
-						carnivoreArray.get(i).setDy(carnivoreArray.get(i).getDy() * -1);
-					} else {
-						// If the herbivore is not posioned, all carnivores can
-						// eat it
-						// If the X translation vector of the carnivore is
-						// higher than that of the current herbivore being
-						// checked
-						if (carnivoreArray.get(i).getLifeFormBody().getCenterX()
-								+ carnivoreArray.get(i).getLifeFormBody().getTranslateX() > herbivoreArray.get(j)
-										.getLifeFormBody().getCenterX()
-										+ herbivoreArray.get(j).getLifeFormBody().getTranslateX()) {
-							// reverse the direction of movement toward
-							// herbivore
-							carnivoreArray.get(i).setDx(-2.0f);
-						} else {
-							// speed up towards the herbivore
-							carnivoreArray.get(i).setDx(2.0f);
-						}
-						// If the Y translation vector of the carnivore is
-						// higher than that of the current herbivore being
-						// checked
-						if (carnivoreArray.get(i).getLifeFormBody().getCenterY()
-								+ carnivoreArray.get(i).getLifeFormBody().getTranslateY() > herbivoreArray.get(j)
-										.getLifeFormBody().getCenterY()
-										+ herbivoreArray.get(j).getLifeFormBody().getTranslateY()) {
-							// Reverse the direction of movement towards
-							// herbivore
-							carnivoreArray.get(i).setDy(-2.0f);
-						} else {
-							// speed up towards the herbivore
-							carnivoreArray.get(i).setDy(2.0f);
-						}
-
-						// If the carnivore and herbivore have collided, remove
-						// herbivore
-						if (hasCollided(carnivoreArray.get(i).getLifeFormBody(),
-								herbivoreArray.get(j).getLifeFormBody()) == true) {
-							root.getChildren().remove(herbivoreArray.get(j).getLifeFormBody());
-							root.getChildren().remove(herbivoreArray.get(j).getSenseRadius());
-							herbivoreArray.get(j).setDead(true);
-							carnivoreArray.get(i).gainEnergy(herbivoreArray.get(j).getFlavour());
-							herbivoreArray.remove(j);
-							numOfHerbivores--;
-							// Prevent the carnivore from moving after eating
-							// ::temporary
-							carnivoreArray.get(i).setDx(0.0f);
-							carnivoreArray.get(i).setDy(0.0f);
-
-						}
+		}
 
+		for (int j = 0; j < herbivoreArray.size(); j++) {
+			Herbivore herbivore = herbivoreArray.get(j);
+			if (herbivore.isDead() || herbivore.isDormant()) {
+				continue;
+			}
+			Intent intent = intents.get(carnivores + j);
+			for (int e = 0; e < intent.getEatCount(); e++) {
+				FoodSource food = foodArray.get(intent.getEats()[e]);
+				// Skip food already eaten this tick
+				if (food.isCanBeEaten() == false) {
+					continue;
+				}
+				// if food is poisonous and the bug cannot detect that, eat
+				// food and poison bug, otherwise eat around the poisoned food
+				// and gain nutrition
+				if (food.isPoisonous() && herbivore.getIntelligenceLvl() < 0.7) {
+					if (!herbivore.isPoisoned()) {
+						journal(EventJournal.POISONED, EventJournal.HERBIVORE, herbivore.getHandle());
 					}
-
+					herbivore.setPoisoned(true);
 				}
-
+				food.setCanBeEaten(false);
+				scheduleRegrowth(food);
+				herbivore.gainEnergy(food.getCalories());
 			}
-			// If a carnivore collides with an obstacle bounce off
-			for (int k = 0; k < obstacleArray.size(); k++) {
-				if (hasCollided(carnivoreArray.get(i).getLifeFormBody(),
-						obstacleArray.get(k).getCollisionArea()) == true) {
-					carnivoreArray.get(i).setDx(carnivoreArray.get(i).getDx() * -1);
-					carnivoreArray.get(i).setDy(carnivoreArray.get(i).getDy() * -1);
-					carnivoreArray.get(i).expendEnergy(100);
+			for (int d = 0; d < intent.getHideCount(); d++) {
+				Den den = denArray.get(intent.getHides()[d]);
+				if (den.isOccupied() == false) {
+					// If the herbivore has reached the den set the den to
+					// occupied, and hide the bug from the map
+					den.setOccupied(true);
+					den.setOccupant(herbivore.getHandle());
+					scheduleDenTimers(den);
+					herbivore.setVisable(false);
+					// Leave the herbivore out of every tick until the den
+					// sends it back out
+					herbivore.setDormant(true);
+					journal(EventJournal.DEN_ENTERED, intent.getHides()[d], herbivore.getHandle());
+
+					// Lose energy upon entering the den
+					herbivore.expendEnergy(100);
 				}
-
 			}
 		}
+
+		// Remove the herbivores eaten this tick, keeping the others in order
+		herbivoreArray.compact();
 	}
 
 	/**
 	 * Returns a boolean value as to whether two circles in the world have
-	 * collided Works using pythagoras theorem to detect if any two given circle
-	 * objects have intersected.
-	 * 
-	 * @param predAreaToCheck-
+	 * collided Works using pythagoras theorem to detect if any two given
+	 * circles have intersected.
+	 *
+	 * @param predX,predY,predRadius
 	 *            represents the first circle in the world being checked for
 	 *            collisions.
-	 * @param preyAreaToChheck-
+	 * @param preyX,preyY,preyRadius
 	 *            represents the second circle in the world being checked for
 	 *            collisions, usually for the object being consumed by the
 	 *            predator.
+	 * @see CollisionKernel class for the test itself.
 	 */
 	// Function to check if any two given circles in the map have collided
-	public boolean hasCollided(Circle predAreaToCheck, Circle preyAreaToCheck) {
-		if (Math.pow((predAreaToCheck.getTranslateX() + predAreaToCheck.getCenterX())
-				- (preyAreaToCheck.getTranslateX() + preyAreaToCheck.getCenterX()), 2)
-				+ Math.pow((predAreaToCheck.getTranslateY() + predAreaToCheck.getCenterY())
-						- (preyAreaToCheck.getTranslateY() + preyAreaToCheck.getCenterY()), 2) <= Math
-								.pow(predAreaToCheck.getRadius() + preyAreaToCheck.getRadius(), 2)) {
-			return true;
-		} else {
-			return false;
-		}
+	public boolean hasCollided(double predX, double predY, double predRadius, double preyX, double preyY,
+			double preyRadius) {
+		return CollisionKernel.overlaps(predX, predY, predRadius, preyX, preyY, preyRadius);
 	}
 
 	/**
-	 * Finds the last placed herbivore in the world, creates a new herbivore and
-	 * adds to the array list. Increments the number of herberivores and adds
-	 * the herbivore to the group (whilst sending it to the back of the scene as
-	 * to not interfere with menu controls)
+	 * Creates a new herbivore and adds it to the array list. Increments the
+	 * number of herbivores.
 	 */
-	public void addHerbivore(Scene scene, Group root) {
+	public void addHerbivore() {
 		// If the user is allowed to add herbivores to the map
 		if (isCanAddH() == true) {
-			// Create a new herbivore, add to the scene, and send it to the back
-			int lastIndex = root.getChildren().size();
-			Herbivore newHerbivore = new Herbivore(this);
+			// Reuse a dead herbivore if there is one, otherwise create a new
+			// herbivore, and add it to the world
+			Herbivore newHerbivore = herbivoreArray.takeSpare();
+			if (newHerbivore == null) {
+				newHerbivore = new Herbivore(this);
+			} else {
+				newHerbivore.respawn(this);
+			}
 			herbivoreArray.add(newHerbivore);
 			numOfHerbivores++;
+			recordBirth(newHerbivore, EventJournal.HERBIVORE);
 			setCanAddH(false);
-			root.getChildren().add(newHerbivore.getLifeFormBody());
-			root.getChildren().get(lastIndex).toBack();
-			lastIndex++;
-			root.getChildren().add(newHerbivore.getSenseRadius());
-			root.getChildren().get(lastIndex).toBack();
-			lastIndex++;
 		}
 	}
 
 	/**
-	 * Finds the last placed carnivore in the world, creates a new carnivore and
-	 * adds to the array list. Increments the number of carnivores and adds the
-	 * carnivore to the group (whilst sending it to the back of the scene as to
-	 * not interfere with menu controls)
+	 * Creates a new carnivore and adds it to the array list. Increments the
+	 * number of carnivores.
 	 */
-	public void addCarnivore(Scene scene, Group root) {
+	public void addCarnivore() {
 		// If the user is allowed to add carnivores to the map
 		if (isCanAddC() == true) {
-			// Create a new carnivore, add to the scene, and send it to the back
-			int lastIndex = root.getChildren().size();
-			Carnivore newCarnivore = new Carnivore(this);
+			// Reuse a dead carnivore if there is one, otherwise create a new
+			// carnivore, and add it to the world
+			Carnivore newCarnivore = carnivoreArray.takeSpare();
+			if (newCarnivore == null) {
+				newCarnivore = new Carnivore(this);
+			} else {
+				newCarnivore.respawn(this);
+			}
 			carnivoreArray.add(newCarnivore);
 			numOfCarnivores++;
+			recordBirth(newCarnivore, EventJournal.CARNIVORE);
 			setCanAddC(false);
-			root.getChildren().add(newCarnivore.getLifeFormBody());
-			root.getChildren().get(lastIndex).toBack();
-			lastIndex++;
-			root.getChildren().add(newCarnivore.getSenseRadius());
-			root.getChildren().get(lastIndex).toBack();
-			lastIndex++;
 		}
 	}
 
 	/**
-	 * Removes the last herbivore added to the map through any means. removes
-	 * the graphical representation of the life form from the group root and
-	 * deletes the last entry in the array list
+	 * Removes the last herbivore added to the map through any means. Marks the
+	 * life form as dead and deletes the last entry in the store
 	 */
-	public void removeHerbivore(Scene scene, Group root) { // removes the last
-															// added herbivore
-															// to the map
+	public void removeHerbivore() { // removes the last added herbivore to the
+									// map
 		if (herbivoreArray.size() > 0 && isCanRemH() == true) {
-			root.getChildren().remove(herbivoreArray.get(numOfHerbivores - 1).getLifeFormBody());
-			root.getChildren().remove(herbivoreArray.get(numOfHerbivores - 1).getSenseRadius());
-			herbivoreArray.remove(numOfHerbivores - 1);
+			recordDeath(herbivoreArray.get(herbivoreArray.size() - 1), EventJournal.HERBIVORE,
+					EventJournal.REMOVED);
+			herbivoreArray.kill(herbivoreArray.size() - 1);
+			herbivoreArray.compact();
 			numOfHerbivores--;
 			setCanRemH(false);
 
@@ -751,17 +1171,17 @@ public class SimWorld {
 	}
 
 	/**
-	 * Removes the last carnivore added to the map through any means. removes
-	 * the graphics for the carnivores and then removes the data of the
-	 * carnivore object from the array list
+	 * Removes the last carnivore added to the map through any means. Marks the
+	 * life form as dead and then removes the data of the carnivore object from
+	 * the store
 	 */
-	public void removeCarnivore(Scene scene, Group root) { // removes the last
-															// added carnivore
-															// to the map
+	public void removeCarnivore() { // removes the last added carnivore to the
+									// map
 		if (carnivoreArray.size() > 0 && isCanRemC() == true) {
-			root.getChildren().remove(carnivoreArray.get(numOfCarnivores - 1).getLifeFormBody());
-			root.getChildren().remove(carnivoreArray.get(numOfCarnivores - 1).getSenseRadius());
-			carnivoreArray.remove(numOfCarnivores - 1);
+			recordDeath(carnivoreArray.get(carnivoreArray.size() - 1), EventJournal.CARNIVORE,
+					EventJournal.REMOVED);
+			carnivoreArray.kill(carnivoreArray.size() - 1);
+			carnivoreArray.compact();
 			numOfCarnivores--;
 			setCanRemC(false);
 
@@ -769,43 +1189,10 @@ public class SimWorld {
 
 	}
 
-	/**
-	 * Sets the colour of the sense radius to a slightly translucent colour and
-	 * visable to the user. Primarily used for demonstration purposes of how the
-	 * simulation works. Works on a toggle basis from a radiobutton from the
-	 * GUIWorld class If the toggle is off, it resets the colour to transparent
-	 * so the user no longer sees it
-	 * 
-	 * @see GUIWorld class
-	 */
-
-	public void toggleDevMode() {
-		if (this.isToggleDev() == true) {
-			for (int i = 0; i < numOfCarnivores; i++) {
-				carnivoreArray.get(i).getSenseRadius().setOpacity(0.3);
-				carnivoreArray.get(i).getSenseRadius().setFill(Color.CYAN);
-			}
-			for (int j = 0; j < numOfHerbivores; j++) {
-				herbivoreArray.get(j).getSenseRadius().setOpacity(0.3);
-				herbivoreArray.get(j).getSenseRadius().setFill(Color.DARKVIOLET);
-			}
-		} else if (this.isToggleDev() == false) {
-			for (int i = 0; i < numOfCarnivores; i++) {
-				carnivoreArray.get(i).getSenseRadius().setOpacity(0);
-				carnivoreArray.get(i).getSenseRadius().setFill(Color.TRANSPARENT);
-			}
-			for (int j = 0; j < numOfHerbivores; j++) {
-				herbivoreArray.get(j).getSenseRadius().setOpacity(0);
-				herbivoreArray.get(j).getSenseRadius().setFill(Color.TRANSPARENT);
-			}
-		}
-
-	}
-
 	/**
 	 * Used to print data about lifeforms currently in the map. Used to fill a
 	 * text area on the scene of the simulation.
-	 * 
+	 *
 	 * @see use of the returned list in the GUIWorld class
 	 * @return lifeFormData returns a string list of specific data from all
 	 *         entities in the world.
@@ -817,24 +1204,24 @@ public class SimWorld {
 		for (int i = 0; i < carnivoreArray.size(); i++) {
 			lifeFormData.add("\n" + (i + 1) + ".)" + " Carnivore Data:");
 			lifeFormData.add("Energy: " + Integer.toString(carnivoreArray.get(i).getEnergy()));
-			lifeFormData.add("X Position: " + Double.toString(carnivoreArray.get(i).getLifeFormBody().getCenterX()));
-			lifeFormData.add("Y Position: " + Double.toString(carnivoreArray.get(i).getLifeFormBody().getCenterY()));
+			lifeFormData.add("X Position: " + Double.toString(carnivoreArray.get(i).getXpos()));
+			lifeFormData.add("Y Position: " + Double.toString(carnivoreArray.get(i).getYpos()));
 			lifeFormData.add("X Speed: " + Double.toString(carnivoreArray.get(i).getDx()));
 			lifeFormData.add("Y Speed: " + Double.toString(carnivoreArray.get(i).getDy()));
 			lifeFormData.add("Bug intelligence: " + (carnivoreArray.get(i).getIntelligenceLvl()));
-			lifeFormData.add("Sense Radius: " + carnivoreArray.get(i).getSenseRadius().getRadius());
+			lifeFormData.add("Sense Radius: " + carnivoreArray.get(i).getSenseRange());
 		}
 		// For all of the herbivores in the arraylist, add the data to the
 		// textArea
 		for (int i = 0; i < herbivoreArray.size(); i++) {
 			lifeFormData.add("\n" + (i + 1) + ".)" + " Herbivore Data:");
 			lifeFormData.add("Energy: " + Integer.toString(herbivoreArray.get(i).getEnergy()));
-			lifeFormData.add("X Position: " + Double.toString(herbivoreArray.get(i).getLifeFormBody().getCenterX()));
-			lifeFormData.add("Y Position: " + Double.toString(herbivoreArray.get(i).getLifeFormBody().getCenterY()));
+			lifeFormData.add("X Position: " + Double.toString(herbivoreArray.get(i).getXpos()));
+			lifeFormData.add("Y Position: " + Double.toString(herbivoreArray.get(i).getYpos()));
 			lifeFormData.add("X Speed: " + Double.toString(herbivoreArray.get(i).getDx()));
 			lifeFormData.add("Y Speed: " + Double.toString(herbivoreArray.get(i).getDy()));
 			lifeFormData.add("Bug intelligence: " + (herbivoreArray.get(i).getIntelligenceLvl()));
-			lifeFormData.add("Sense Radius: " + herbivoreArray.get(i).getSenseRadius().getRadius());
+			lifeFormData.add("Sense Radius: " + herbivoreArray.get(i).getSenseRange());
 
 		}
 		// Return the arraylist to be used to print the contents to the screen
@@ -868,187 +1255,201 @@ public class SimWorld {
 	}
 
 	/**
-	 * For all of the life forms in the map, encircle them with red if they have
-	 * been poisoned to notify the user.
-	 * 
+	 * For all of the life forms in the map, mark them if they have been
+	 * poisoned so they are encircled with red to notify the user.
+	 *
 	 * @see the use of modified for loop
 	 */
 	public void detectPosion() {
-		// For all herbivores, set an outline to darkred if poisoned
+		// For all herbivores, mark for a darkred outline if poisoned
 		for (Herbivore herbivore : herbivoreArray) {
 			if (herbivore.isPoisoned()) {
-				herbivore.getLifeFormBody().setStroke(Color.DARKRED);
-				herbivore.getLifeFormBody().setStrokeWidth(2);
+				herbivore.setMarkedPoisoned(true);
 			}
 		}
-		// For all carnivores, set an outline to darkred if poisoned
+		// For all carnivores, mark for a darkred outline if poisoned
 		for (Carnivore carnivore : carnivoreArray) {
 			if (carnivore.isPoisoned()) {
-				carnivore.getLifeFormBody().setStroke(Color.DARKRED);
-				carnivore.getLifeFormBody().setStrokeWidth(2);
+				carnivore.setMarkedPoisoned(true);
 			}
 		}
 	}
 
 	/**
-	 * Removes nodes from the group in the simulation based on certain factors.
-	 * For example, if a herbivores age surpasses 200 or at any time their
-	 * energy is below zero, they are removed from the map.
-	 * 
-	 * @param scene
-	 *            used to hold the current scene being operated upon
-	 * @param root
-	 *            Group passed to the function which is used to remove the
-	 *            correct graphical representation of the entity which has died.
+	 * Removes entities from the world based on certain factors. For example,
+	 * if a herbivores age surpasses 200 or at any time their energy is below
+	 * zero, they are removed from the map.
+	 * <p>
+	 * Dead life forms are only marked while checking, then all of them are
+	 * taken out of the stores at once.
 	 */
-	public void detectDeath(Scene scene, Group root) {
+	public void detectDeath() {
 		for (int i = 0; i < herbivoreArray.size(); i++) {
 			if (herbivoreArray.get(i).getEnergy() <= 0 || herbivoreArray.get(i).getAge() > 200) {
-				root.getChildren().remove(herbivoreArray.get(i).getLifeFormBody());
-				root.getChildren().remove(herbivoreArray.get(i).getSenseRadius());
-				herbivoreArray.get(i).setDead(true);
-				herbivoreArray.remove(i);
+				recordDeath(herbivoreArray.get(i), EventJournal.HERBIVORE,
+						herbivoreArray.get(i).getEnergy() <= 0 ? EventJournal.STARVED : EventJournal.OLD_AGE);
+				herbivoreArray.kill(i);
 				numOfHerbivores--;
 			}
 		}
+		herbivoreArray.compact();
 		for (int i = 0; i < carnivoreArray.size(); i++) {
 			if (carnivoreArray.get(i).getEnergy() <= 0 || carnivoreArray.get(i).getAge() > 200) {
-				root.getChildren().remove(carnivoreArray.get(i).getLifeFormBody());
-				root.getChildren().remove(carnivoreArray.get(i).getSenseRadius());
-				carnivoreArray.get(i).setDead(true);
-				carnivoreArray.remove(i);
+				recordDeath(carnivoreArray.get(i), EventJournal.CARNIVORE,
+						carnivoreArray.get(i).getEnergy() <= 0 ? EventJournal.STARVED : EventJournal.OLD_AGE);
+				carnivoreArray.kill(i);
 				numOfCarnivores--;
 			}
 		}
+		carnivoreArray.compact();
 	}
 
 	/**
 	 * Handles collisions of carnivores with other carnivores when they are
-	 * ready to breed. This can occur when their breeding boolean value has been
-	 * set manually or when their energy is high enough.
-	 * 
-	 * @see forceBreeing method that sets ready to breed to true
+	 * ready to breed. This can occur when quick breeding has been toggled on by
+	 * the user or when their energy is high enough. The same is then done for
+	 * herbivores.
+	 *
+	 * @see isReadyToBreed method in the ALifeForm class.
 	 */
-	public void detectBreeding(Scene scene, Group root) {
-		for (int i = 0; i < carnivoreArray.size(); i++) {
+	public void detectBreeding() {
+		if (breedPairs(carnivoreArray, isToggleBreed())) {
+			setCanAddC(true);
+		}
+		if (breedPairs(herbivoreArray, isToggleBreed())) {
+			setCanAddH(true);
+		}
+	}
 
-			for (int j = 0; j < carnivoreArray.size(); j++) {
-				// If the carnivore being checked is not equal to itself and has
-				// collided with another carnivore
-				if (j != i
-						&& hasCollided(carnivoreArray.get(i).getLifeFormBody(), carnivoreArray.get(j).getLifeFormBody())
-						&& carnivoreArray.get(i).isReadyToBreed() && carnivoreArray.get(j).isReadyToBreed()) {
-					setCanAddC(true);
-					// After breeding, set able to breed to false and expend
-					// energy
-					carnivoreArray.get(i).setReadyToBreed(false);
-					carnivoreArray.get(j).setReadyToBreed(false);
-					carnivoreArray.get(i).expendEnergy(1000);
-					carnivoreArray.get(j).expendEnergy(1000);
+	/**
+	 * Finds life forms which are ready to breed and touching another life form
+	 * that is ready to breed. Only the life forms ready to breed are put into a
+	 * grid, and each of them is only checked against the others nearby in the
+	 * grid. Pairs are found in the same order as checking every life form
+	 * against every other would find them.
+	 * <p>
+	 * A life form breeds at most once each tick, however much energy it has
+	 * left afterwards.
+	 *
+	 * @param lifeForms
+	 *            the life forms of one kind in the world
+	 * @param forced
+	 *            true to let every life form breed whatever its energy
+	 * @return true if at least one pair has bred
+	 */
+	private boolean breedPairs(EntityStore<? extends ALifeForm> lifeForms, boolean forced) {
+		// Collect the life forms that are ready, in array order
+		int readyCount = 0;
+		for (int i = 0; i < lifeForms.size(); i++) {
+			if (forced || lifeForms.get(i).isReadyToBreed()) {
+				if (readyCount == readyIndexes.length) {
+					readyIndexes = Arrays.copyOf(readyIndexes, readyCount * 2 + 16);
+					readyXs = Arrays.copyOf(readyXs, readyIndexes.length);
+					readyYs = Arrays.copyOf(readyYs, readyIndexes.length);
+					readyRs = Arrays.copyOf(readyRs, readyIndexes.length);
+					hasBredThisTick = Arrays.copyOf(hasBredThisTick, readyIndexes.length);
 				}
+				hasBredThisTick[readyCount] = false;
+				readyIndexes[readyCount] = i;
+				readyXs[readyCount] = lifeForms.get(i).getXpos();
+				readyYs[readyCount] = lifeForms.get(i).getYpos();
+				readyRs[readyCount] = lifeForms.get(i).getRadius();
+				readyCount++;
 			}
 		}
+		if (readyCount < 2) {
+			return false;
+		}
 
-		for (int i = 0; i < herbivoreArray.size(); i++) {
-
-			for (int j = 0; j < herbivoreArray.size(); j++) {
-				// If the herbivore being checked is not equal to itself and has
-				// collided with another herbivore
-				if (j != i
-						&& hasCollided(herbivoreArray.get(i).getLifeFormBody(), herbivoreArray.get(j).getLifeFormBody())
-						&& herbivoreArray.get(i).isReadyToBreed() && herbivoreArray.get(j).isReadyToBreed()) {
-					setCanAddH(true);
-					// After breeding, set able to breed to false and expend
-					// energy
-					herbivoreArray.get(i).setReadyToBreed(false);
-					herbivoreArray.get(j).setReadyToBreed(false);
-					herbivoreArray.get(i).expendEnergy(1000);
-					herbivoreArray.get(j).expendEnergy(1000);
+		if (breedingGrid == null) {
+			breedingGrid = new SpatialGrid(worldWidth, worldHeight, SENSE_CELL_SIZE);
+		}
+		breedingGrid.build(readyXs, readyYs, readyRs, readyCount);
+		boolean hasBred = false;
+		for (int i = 0; i < readyCount; i++) {
+			ALifeForm first = lifeForms.get(readyIndexes[i]);
+			int found = breedingGrid.queryOverlapping(first.getXpos(), first.getYpos(), first.getRadius());
+			int[] nearby = breedingGrid.getQueryResult();
+			for (int j = 0; j < found && !hasBredThisTick[i]; j++) {
+				ALifeForm second = lifeForms.get(readyIndexes[nearby[j]]);
+				// If the life form being checked is not equal to itself (all
+				// those found have collided with it)
+				if (nearby[j] != i && !hasBredThisTick[nearby[j]]) {
+					hasBred = true;
+					// After breeding, neither can breed again this tick and
+					// both expend energy
+					hasBredThisTick[i] = true;
+					hasBredThisTick[nearby[j]] = true;
+					first.expendEnergy(1000);
+					second.expendEnergy(1000);
 				}
 			}
 		}
-
+		return hasBred;
 	}
 
 	/**
-	 * sets all life forms ready to breed despite energy levels
+	 * Counts down from 5 one simulated second at a time once a disaster has
+	 * been triggered. After the countdown half of the life forms are removed
+	 * and the world is turned into a wasteland.
+	 *
+	 * @see showDisaster in the WorldView class for the graphics.
 	 */
-	public void forceBreeding(Scene scene, Group root) {
-		for (Carnivore carnivore : carnivoreArray) {
-			carnivore.setReadyToBreed(true);
+	public void countDownDisaster() {
+		// If a disaster is to be triggered start the countdown
+		if (isDisaster()) {
+			setDisaster(false);
+			setCountDown(5);
+			disasterTick = clock.getTick();
 		}
-		for (Herbivore herbivore : herbivoreArray) {
-			herbivore.setReadyToBreed(true);
+
+		if (disasterTick >= 0 && clock.getTick() > disasterTick
+				&& (clock.getTick() - disasterTick) % SimClock.TICKS_PER_SECOND == 0) {
+			if (getCountDown() == 1) {
+				// remove half of the life forms
+				cullPopulation();
+				setWasteland(true);
+				disasterTick = -1;
+			}
+			setCountDown(getCountDown() - 1);
 		}
 	}
 
 	/**
-	 * Invokes a function which removes entities from the map and changes the
-	 * background image of the map. A red circle reticule is painted on the map,
-	 * then a counter counts down from 5. After the countdown some entities are
-	 * removed from the scene and the fill of the map background is set to a
-	 * different theme.
-	 * 
-	 * @param scene
-	 *            used to store the current scene the simulation is running
-	 * @param root
-	 *            used to add the circle reticule when the countdown begins and
-	 *            remove it again when the count down ends.
+	 * Returns whether the disaster target should be shown, which is from the
+	 * first second of a countdown until the life forms are removed.
 	 */
-	public void triggerDisaster(Scene scene, Group root) {
-		// Create a new timeline with 1 second frames to count from 5 to 1
-		Timeline falloutSiren = new Timeline();
-		KeyFrame frame = new KeyFrame(Duration.seconds(1), new EventHandler<ActionEvent>() {
-
-			@Override
-			public void handle(ActionEvent arg0) {
-
-				if (getCountDown() == 5) {
-					blastRadius = new Circle(worldWidth / 2, worldHeight / 2, worldHeight / 2);
-					blastRadius.setFill(Color.CRIMSON);
-					blastRadius.setOpacity(0.3);
-					root.getChildren().add(blastRadius);
-
-				}
-
-				if (getCountDown() == 1) {
-					// remove half of carnivores
-					for (int i = 0; i < carnivoreArray.size(); i++) {
-						if (carnivoreArray.size() > 0) {
-							root.getChildren().remove(carnivoreArray.get(numOfCarnivores - 1).getLifeFormBody());
-							root.getChildren().remove(carnivoreArray.get(numOfCarnivores - 1).getSenseRadius());
-							carnivoreArray.remove(numOfCarnivores - 1);
-							numOfCarnivores--;
-
-						}
-					}
-					// Remove half of herbivores
-					for (int i = 0; i < herbivoreArray.size(); i++) {
-						if (herbivoreArray.size() > 0) {
-							root.getChildren().remove(herbivoreArray.get(numOfHerbivores - 1).getLifeFormBody());
-							root.getChildren().remove(herbivoreArray.get(numOfHerbivores - 1).getLifeFormBody());
-							herbivoreArray.remove(numOfHerbivores - 1);
-							numOfHerbivores--;
-						}
-					}
-					// Remove the painted target circle and change the
-					// background
-					root.getChildren().remove(blastRadius);
-					setBackgroundImage("WasteLandBackgroundforLifeSim.png");
-					scene.setFill(getBackgroundImage());
-				}
-				setCountDown(getCountDown() - 1);
-			}
-
-		});
-
-		// Run for 5 frames and then set the counter back to five
-		falloutSiren.setCycleCount(5);
-		falloutSiren.getKeyFrames().add(frame);
-		falloutSiren.play();
-		this.disaster = false;
-		setCountDown(5);
+	public boolean isCountingDown() {
+		return disasterTick >= 0 && getCountDown() < 5;
+	}
 
+	/**
+	 * Removes half of the carnivores and half of the herbivores from the world,
+	 * starting with the most recently added. Called at the end of a disaster
+	 * countdown.
+	 */
+	public void cullPopulation() {
+		// remove half of carnivores, rounding up
+		int culled = (carnivoreArray.size() + 1) / 2;
+		int total = culled;
+		for (int i = 0; i < culled; i++) {
+			recordDeath(carnivoreArray.get(carnivoreArray.size() - 1 - i), EventJournal.CARNIVORE,
+					EventJournal.CULLED);
+			carnivoreArray.kill(carnivoreArray.size() - 1 - i);
+		}
+		carnivoreArray.compact();
+		numOfCarnivores -= culled;
+		// Remove half of herbivores, rounding up
+		culled = (herbivoreArray.size() + 1) / 2;
+		total += culled;
+		for (int i = 0; i < culled; i++) {
+			recordDeath(herbivoreArray.get(herbivoreArray.size() - 1 - i), EventJournal.HERBIVORE,
+					EventJournal.CULLED);
+			herbivoreArray.kill(herbivoreArray.size() - 1 - i);
+		}
+		herbivoreArray.compact();
+		numOfHerbivores -= culled;
+		journal(EventJournal.DISASTER, total, -1);
 	}
 
 	// Start of getters and setters for SimWorld
@@ -1092,14 +1493,6 @@ public class SimWorld {
 		this.isPlaying = isPlaying;
 	}
 
-	public Timeline getCircleTimeLine() {
-		return circleTimeLine;
-	}
-
-	public void setCircleTimeLine(Timeline circleTimeLine) {
-		this.circleTimeLine = circleTimeLine;
-	}
-
 	public boolean isCanAddH() {
 		return canAddH;
 	}
@@ -1156,36 +1549,36 @@ public class SimWorld {
 		this.toggleBreed = toggleBreed;
 	}
 
-	public ArrayList<FoodSource> getFoodArray() {
-		return foodArray;
+	public EntityStore<Carnivore> getCarnivoreArray() {
+		return carnivoreArray;
 	}
 
-	public void setFoodArray(ArrayList<FoodSource> foodArray) {
-		this.foodArray = foodArray;
+	public EntityStore<Herbivore> getHerbivoreArray() {
+		return herbivoreArray;
 	}
 
-	public boolean isDisaster() {
-		return disaster;
+	public ArrayList<Obstacle> getObstacleArray() {
+		return obstacleArray;
 	}
 
-	public void setDisaster(boolean disaster) {
-		this.disaster = disaster;
+	public ArrayList<FoodSource> getFoodArray() {
+		return foodArray;
 	}
 
-	public Circle getBlastRadius() {
-		return blastRadius;
+	public void setFoodArray(ArrayList<FoodSource> foodArray) {
+		this.foodArray = foodArray;
 	}
 
-	public void setBlastRadius(Circle blastRadius) {
-		this.blastRadius = blastRadius;
+	public ArrayList<Den> getDenArray() {
+		return denArray;
 	}
 
-	public ImagePattern getBackgroundImage() {
-		return backgroundImage;
+	public boolean isDisaster() {
+		return disaster;
 	}
 
-	public void setBackgroundImage(String backgroundImage) {
-		this.backgroundImage = new ImagePattern(new Image(backgroundImage));
+	public void setDisaster(boolean disaster) {
+		this.disaster = disaster;
 	}
 
 	public int getWorldWidth() {
@@ -1212,4 +1605,121 @@ public class SimWorld {
 		this.countDown = countDown;
 	}
 
+	public boolean isWasteland() {
+		return wasteland;
+	}
+
+	public void setWasteland(boolean wasteland) {
+		this.wasteland = wasteland;
+	}
+
+	public int getSimTicks() {
+		return simTicks;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public long getNextEntityStream() {
+		return nextEntityStream;
+	}
+
+	public long getDisasterTick() {
+		return disasterTick;
+	}
+
+	public void setDisasterTick(long disasterTick) {
+		this.disasterTick = disasterTick;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public SimClock getClock() {
+		return clock;
+	}
+
+	public EventScheduler getEvents() {
+		return events;
+	}
+
+	public EventJournal getJournal() {
+		return journal;
+	}
+
+	// Starts or stops recording into a journal, null to stop. Must only be
+	// changed between ticks
+	public void setJournal(EventJournal journal) {
+		this.journal = journal;
+	}
+
+	public TelemetrySink getTelemetry() {
+		return telemetry;
+	}
+
+	// Starts or stops streaming the populations into a sink, null to stop.
+	// Must only be changed between ticks
+	public void setTelemetry(TelemetrySink telemetry) {
+		this.telemetry = telemetry;
+		births = 0;
+		deaths = 0;
+	}
+
+	// The grids of things that never move are never changed once built, so
+	// they can be queried from any thread with a Query of its own
+	public SpatialGrid getObstacleGrid() {
+		return obstacleGrid;
+	}
+
+	public SpatialGrid getFoodGrid() {
+		return foodGrid;
+	}
+
+	public SpatialGrid getDenGrid() {
+		return denGrid;
+	}
+
+	/**
+	 * Returns the live life form a handle was given to, or null if it has
+	 * since died or been removed from the world.
+	 *
+	 * @see HandleTable class
+	 */
+	public ALifeForm resolve(long handle) {
+		return handles.resolve(handle);
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets the number of threads animals are sensed on. The world ends up in
+	 * the same state whatever the number of threads.
+	 *
+	 * @param threads
+	 *            number of threads, 1 (or less) to sense every animal on the
+	 *            calling thread
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		close();
+	}
+
+	/**
+	 * Shuts down the threads used to sense the world, for when the world is
+	 * thrown away so they are not left waiting until they time out. A world
+	 * run again afterwards starts new threads.
+	 */
+	public void close() {
+		if (sensePool != null) {
+			sensePool.shutdown();
+			sensePool = null;
+		}
+		// Split the world again for the new number of threads
+		regions = null;
+	}
+
 }
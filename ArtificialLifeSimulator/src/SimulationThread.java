@@ -0,0 +1,199 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a SimWorld on a thread of its own, so that how long a tick takes and
+ * how long a frame takes to draw do not hold each other up. Ticks are paced
+ * by the clock rather than by frames: at a rate of 1 the world runs one tick
+ * every 16 milliseconds, as the timeline of WorldView does, and the rate can
+ * be raised or lowered freely while it runs.
+ * <p>
+ * After ticks have run a WorldSnapshot of the world is published, at most
+ * once for each frame the screen can show however fast the world is running.
+ * Whatever draws the world only ever reads the latest snapshot and never the
+ * world itself. Anything else that needs to read or change the world is
+ * handed to submit and run on this thread between ticks.
+ *
+ * @see CanvasWorldView class which draws the snapshots.
+ */
+public class SimulationThread implements Runnable {
+	// Ticks run each second at a rate of 1
+	static final double TICKS_PER_SECOND = 1000.0 / 16;
+	// Shortest time between published snapshots, twice the frame rate of the
+	// screen so a frame never waits long for the latest ticks
+	private static final long PUBLISH_NANOS = 1000000000L / 120;
+	// Most ticks run before looking for submitted tasks again. A world that
+	// cannot keep up with its rate runs as fast as it can instead of falling
+	// ever further behind
+	private static final int MAX_TICKS_AT_ONCE = 256;
+
+	private final SimWorld world;
+	private final Thread thread;
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	// Used to wake the thread while it is paused
+	private final Object lock = new Object();
+	private volatile WorldSnapshot latest;
+	private volatile double rate = 1.5;
+	private volatile boolean running = false;
+	private volatile boolean stopped = false;
+
+	// Constructor for the thread running a world, takes the first snapshot
+	// straight away so there is always one to draw
+	SimulationThread(SimWorld world) {
+		this.world = world;
+		this.latest = WorldSnapshot.take(world, tickNanos());
+		this.thread = new Thread(this, "Simulation");
+		// The world should not keep the application open once it is closed
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void run() {
+		long lastTime = System.nanoTime();
+		long lastPublished = lastTime;
+		// Ticks due to be run but not yet run, including part of the next
+		double owed = 0;
+		boolean changed = false;
+
+		while (!stopped) {
+			// Tasks are run and shown straight away, even when paused
+			if (runTasks()) {
+				latest = WorldSnapshot.take(world, tickNanos());
+				lastPublished = System.nanoTime();
+				changed = false;
+			}
+
+			if (!running) {
+				synchronized (lock) {
+					while (!running && !stopped && tasks.isEmpty()) {
+						try {
+							lock.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}
+				// No ticks are owed for the time spent paused
+				lastTime = System.nanoTime();
+				owed = 0;
+				continue;
+			}
+
+			long now = System.nanoTime();
+			owed += (now - lastTime) * rate * TICKS_PER_SECOND / 1e9;
+			lastTime = now;
+			int ticks = (int) Math.min(owed, MAX_TICKS_AT_ONCE);
+			for (int i = 0; i < ticks; i++) {
+				world.runCycle();
+			}
+			owed = ticks == MAX_TICKS_AT_ONCE ? 0 : owed - ticks;
+			changed |= ticks > 0;
+
+			now = System.nanoTime();
+			if (changed && now - lastPublished >= PUBLISH_NANOS) {
+				latest = WorldSnapshot.take(world, tickNanos());
+				lastPublished = now;
+				changed = false;
+			}
+			if (ticks == 0) {
+				// Sleep until the next tick is due, waking in time to publish
+				// any ticks not yet shown
+				long untilTick = rate > 0 ? (long) ((1 - owed) * tickNanos()) : PUBLISH_NANOS;
+				LockSupport.parkNanos(Math.max(0, Math.min(untilTick, PUBLISH_NANOS)));
+			}
+		}
+	}
+
+	// Runs every task submitted since last time, returns whether there were
+	// any
+	private boolean runTasks() {
+		boolean ran = false;
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			task.run();
+			ran = true;
+		}
+		return ran;
+	}
+
+	// Nanoseconds between ticks at the current rate, 0 when not ticking
+	private long tickNanos() {
+		if (rate <= 0) {
+			return 0;
+		}
+		return (long) (1e9 / (rate * TICKS_PER_SECOND));
+	}
+
+	/**
+	 * Runs a task on this thread between ticks, after which a new snapshot is
+	 * published. Used for anything that reads or changes the world while it is
+	 * running here.
+	 *
+	 * @param task
+	 *            the task to run, which must not wait on the JavaFX
+	 *            application thread
+	 */
+	public void submit(Runnable task) {
+		tasks.add(task);
+		wake();
+	}
+
+	// Wakes the thread if it is paused
+	private void wake() {
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+		LockSupport.unpark(thread);
+	}
+
+	public void play() {
+		running = true;
+		wake();
+	}
+
+	public void pause() {
+		running = false;
+	}
+
+	/**
+	 * Stops the thread for good, waiting for the tick it is running to finish
+	 * so that the world can safely be used elsewhere afterwards.
+	 */
+	public void stop() {
+		stopped = true;
+		running = false;
+		wake();
+		if (Thread.currentThread() != thread) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// Start of getters and setters for SimulationThread
+	public WorldSnapshot getLatest() {
+		return latest;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	// Rates below 0 are taken as 0, which keeps the world still while running
+	public void setRate(double rate) {
+		this.rate = Math.max(0, rate);
+		wake();
+	}
+
+	public SimWorld getWorld() {
+		return world;
+	}
+
+}
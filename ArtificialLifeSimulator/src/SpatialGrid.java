@@ -0,0 +1,267 @@
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the world used to find entities near a point without
+ * checking every entity in the world. The world is split into square cells,
+ * each entity is put into the cell its centre lies in, and a query only looks
+ * at the cells overlapped by the area being searched.
+ * <p>
+ * Entities are stored by their index in the array they were built from. The
+ * grid is rebuilt from scratch when the entities move, which is a single pass
+ * over them (a counting sort by cell). The position and radius of each entity
+ * are copied in cell order too, so the entities of neighbouring cells can be
+ * tested for overlaps with the batch form of the collision kernel.
+ *
+ * @see queryOverlapping method, used by SimWorld for all collisions and sensing.
+ */
+public class SpatialGrid {
+	private double cellSize;
+	// World position of the top left corner of the grid
+	private double originX;
+	private double originY;
+	private int columns;
+	private int rows;
+	// Entities of cell c are cellItems[cellStart[c]] to cellItems[cellStart[c + 1] - 1]
+	private int[] cellStart;
+	private int[] cellItems = new int[16];
+	// Cell of each entity, kept between the two passes of a build
+	private int[] itemCell = new int[16];
+	// Position and radius of each entity, in the same order as cellItems
+	private double[] packedXs = new double[16];
+	private double[] packedYs = new double[16];
+	private double[] packedRs = new double[16];
+	private double largestRadius;
+	// Results of queries made without a Query of their own
+	private Query query = new Query();
+
+	/**
+	 * Holds the results of queries on a grid. Several threads can query the
+	 * same grid at once as long as each thread uses its own Query.
+	 */
+	public static class Query {
+		// Positions in the packed arrays of the circles found
+		private int[] packedHits = new int[16];
+		// Indexes of the entities found
+		private int[] result = new int[16];
+
+		public int[] getResult() {
+			return result;
+		}
+	}
+
+	/**
+	 * Constructor for a grid covering a world of the given size. Points
+	 * outside of the world are put into the nearest edge cell.
+	 *
+	 * @param width
+	 *            width of the world
+	 * @param height
+	 *            height of the world
+	 * @param cellSize
+	 *            length of the side of each cell
+	 */
+	SpatialGrid(double width, double height, double cellSize) {
+		this(0, 0, width, height, cellSize);
+	}
+
+	/**
+	 * Constructor for a grid covering part of a world. Points outside of that
+	 * part are put into the nearest edge cell.
+	 *
+	 * @param originX
+	 *            x position of the left edge of the grid
+	 * @param originY
+	 *            y position of the top edge of the grid
+	 * @param width
+	 *            width of the area covered
+	 * @param height
+	 *            height of the area covered
+	 * @param cellSize
+	 *            length of the side of each cell
+	 */
+	SpatialGrid(double originX, double originY, double width, double height, double cellSize) {
+		this.originX = originX;
+		this.originY = originY;
+		this.cellSize = cellSize;
+		this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+		this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		this.cellStart = new int[columns * rows + 1];
+	}
+
+	/**
+	 * Puts entities into the grid, replacing anything that was in it before.
+	 * Within each cell entities are kept in index order.
+	 *
+	 * @param xs
+	 *            x positions of the entities
+	 * @param ys
+	 *            y positions of the entities
+	 * @param rs
+	 *            radii of the entities
+	 * @param count
+	 *            number of entities, from index 0
+	 */
+	public void build(double[] xs, double[] ys, double[] rs, int count) {
+		if (cellItems.length < count) {
+			cellItems = new int[count * 2];
+			itemCell = new int[count * 2];
+			packedXs = new double[count * 2];
+			packedYs = new double[count * 2];
+			packedRs = new double[count * 2];
+		}
+		Arrays.fill(cellStart, 0);
+		largestRadius = 0;
+		// Count the entities in each cell
+		for (int i = 0; i < count; i++) {
+			int cell = row(ys[i]) * columns + column(xs[i]);
+			itemCell[i] = cell;
+			cellStart[cell + 1]++;
+		}
+		// Turn the counts into the start of each cell
+		for (int c = 0; c < columns * rows; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		// Place each entity, using cellStart as the next free slot then
+		// shifting it back afterwards
+		for (int i = 0; i < count; i++) {
+			int slot = cellStart[itemCell[i]]++;
+			cellItems[slot] = i;
+			packedXs[slot] = xs[i];
+			packedYs[slot] = ys[i];
+			packedRs[slot] = rs[i];
+			largestRadius = Math.max(largestRadius, rs[i]);
+		}
+		for (int c = columns * rows; c > 0; c--) {
+			cellStart[c] = cellStart[c - 1];
+		}
+		cellStart[0] = 0;
+	}
+
+	/**
+	 * Finds every entity whose circle overlaps the given circle. Only the
+	 * cells the circle could reach are searched and each entity in them is
+	 * tested exactly, so no further collision check is needed.
+	 *
+	 * @param x
+	 *            x position of the centre of the circle
+	 * @param y
+	 *            y position of the centre of the circle
+	 * @param radius
+	 *            radius of the circle
+	 * @return the number of entities found, their indexes are at the start of
+	 *         getQueryResult() in increasing order
+	 */
+	public int queryOverlapping(double x, double y, double radius) {
+		return queryOverlapping(x, y, radius, query);
+	}
+
+	/**
+	 * Finds every entity whose circle overlaps the given circle, as above, but
+	 * puts the results into the given Query. The grid itself is not changed,
+	 * so this can be called from several threads at once.
+	 *
+	 * @param x
+	 *            x position of the centre of the circle
+	 * @param y
+	 *            y position of the centre of the circle
+	 * @param radius
+	 *            radius of the circle
+	 * @param into
+	 *            the Query to put the results into
+	 * @return the number of entities found, their indexes are at the start of
+	 *         into.getResult() in increasing order
+	 */
+	public int queryOverlapping(double x, double y, double radius, Query into) {
+		double reach = radius + largestRadius;
+		int firstColumn = column(x - reach);
+		int lastColumn = column(x + reach);
+		int firstRow = row(y - reach);
+		int lastRow = row(y + reach);
+		int found = 0;
+		for (int r = firstRow; r <= lastRow; r++) {
+			// Cells next to each other in a row are next to each other in the
+			// packed arrays, so each row is a single batch
+			int from = cellStart[r * columns + firstColumn];
+			int to = cellStart[r * columns + lastColumn + 1];
+			if (found + (to - from) > into.packedHits.length) {
+				into.packedHits = Arrays.copyOf(into.packedHits, (found + (to - from)) * 2);
+			}
+			found = CollisionKernel.overlapsBatch(x, y, radius, packedXs, packedYs, packedRs, from, to,
+					into.packedHits, found);
+		}
+		if (found > into.result.length) {
+			into.result = new int[found * 2];
+		}
+		for (int i = 0; i < found; i++) {
+			into.result[i] = cellItems[into.packedHits[i]];
+		}
+		// Keep the order entities would be checked in without the grid
+		Arrays.sort(into.result, 0, found);
+		return found;
+	}
+
+	/**
+	 * Finds every entity whose circle could be seen in the given rectangle,
+	 * for drawing only what is on screen. Circles are tested by their bounding
+	 * boxes, so a few just outside a corner of the rectangle may be found too.
+	 *
+	 * @param minX
+	 *            x position of the left edge of the rectangle
+	 * @param minY
+	 *            y position of the top edge of the rectangle
+	 * @param maxX
+	 *            x position of the right edge of the rectangle
+	 * @param maxY
+	 *            y position of the bottom edge of the rectangle
+	 * @param into
+	 *            the Query to put the results into
+	 * @return the number of entities found, their indexes are at the start of
+	 *         into.getResult() in increasing order
+	 */
+	public int queryRectangle(double minX, double minY, double maxX, double maxY, Query into) {
+		int firstColumn = column(minX - largestRadius);
+		int lastColumn = column(maxX + largestRadius);
+		int firstRow = row(minY - largestRadius);
+		int lastRow = row(maxY + largestRadius);
+		int found = 0;
+		for (int r = firstRow; r <= lastRow; r++) {
+			int from = cellStart[r * columns + firstColumn];
+			int to = cellStart[r * columns + lastColumn + 1];
+			if (found + (to - from) > into.result.length) {
+				into.result = Arrays.copyOf(into.result, (found + (to - from)) * 2);
+			}
+			for (int i = from; i < to; i++) {
+				double radius = packedRs[i];
+				if (packedXs[i] + radius >= minX && packedXs[i] - radius <= maxX && packedYs[i] + radius >= minY
+						&& packedYs[i] - radius <= maxY) {
+					into.result[found++] = cellItems[i];
+				}
+			}
+		}
+		// Keep the order entities would be drawn in without the grid
+		Arrays.sort(into.result, 0, found);
+		return found;
+	}
+
+	// Column of the cell containing an x position, clamped to the grid
+	private int column(double x) {
+		int column = (int) Math.floor((x - originX) / cellSize);
+		return Math.min(columns - 1, Math.max(0, column));
+	}
+
+	// Row of the cell containing a y position, clamped to the grid
+	private int row(double y) {
+		int row = (int) Math.floor((y - originY) / cellSize);
+		return Math.min(rows - 1, Math.max(0, row));
+	}
+
+	// Start of getters for the grid
+	public int[] getQueryResult() {
+		return query.getResult();
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+
+}
@@ -0,0 +1,282 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Streams the populations of a world out to files as it runs, one row every
+ * few ticks, for plotting how a world changes over time. Each row holds the
+ * tick, the number of carnivores and herbivores, the mean energy of each,
+ * the fraction of life forms poisoned and the births and deaths since the
+ * row before.
+ * <p>
+ * Rows are written both as a CSV file and as a columnar binary file, which
+ * is made of blocks each holding up to ROWS_PER_BATCH rows column by column.
+ * The binary file starts with the magic number and version, then each block
+ * is its number of rows followed by the columns: ticks as longs, the two
+ * populations as ints, the two mean energies and poisoned fraction as floats
+ * and the births and deaths as ints.
+ * <p>
+ * Rows are gathered into batches on the thread running the world and
+ * written by a thread of the sink's own. The world never waits for the disk:
+ * if the writer falls so far behind that no more batches can be queued, the
+ * batch is dropped and counted instead.
+ *
+ * @see recordTelemetry method in the SimWorld class.
+ */
+public class TelemetrySink {
+	// First bytes of every binary telemetry file, "ALTM"
+	static final int MAGIC = 0x414c544d;
+	static final int VERSION = 1;
+	// Rows in each batch and block of the binary file
+	static final int ROWS_PER_BATCH = 1024;
+	// Bytes in each row of the binary file
+	static final int ROW_BYTES = 36;
+	// Most full batches waiting to be written before batches are dropped
+	private static final int QUEUED_BATCHES = 64;
+	// Put into the queue after the last batch, to stop the writer
+	private static final Batch END = new Batch();
+
+	private final int everyTicks;
+	private final FileChannel csv;
+	private final FileChannel binary;
+	private final Thread writer;
+	// Batches waiting to be written, and written batches ready for reuse
+	private final ArrayBlockingQueue<Batch> full = new ArrayBlockingQueue<Batch>(QUEUED_BATCHES);
+	private final ConcurrentLinkedQueue<Batch> empty = new ConcurrentLinkedQueue<Batch>();
+	// Batch being filled
+	private Batch batch = new Batch();
+	private int droppedRows = 0;
+	private boolean closed = false;
+	// Closes the sink if the application exits while recording
+	private final Thread closeOnExit;
+
+	// Rows gathered on the world's thread, held column by column
+	private static class Batch {
+		private int rows = 0;
+		private final long[] ticks = new long[ROWS_PER_BATCH];
+		private final int[] carnivores = new int[ROWS_PER_BATCH];
+		private final int[] herbivores = new int[ROWS_PER_BATCH];
+		private final float[] carnivoreEnergy = new float[ROWS_PER_BATCH];
+		private final float[] herbivoreEnergy = new float[ROWS_PER_BATCH];
+		private final float[] poisoned = new float[ROWS_PER_BATCH];
+		private final int[] births = new int[ROWS_PER_BATCH];
+		private final int[] deaths = new int[ROWS_PER_BATCH];
+	}
+
+	/**
+	 * Starts a new sink, replacing the files if they exist.
+	 *
+	 * @param csvFile
+	 *            the CSV file to write to
+	 * @param binaryFile
+	 *            the columnar binary file to write to
+	 * @param everyTicks
+	 *            ticks between rows, at least 1
+	 * @throws IOException
+	 *             if either file cannot be written
+	 */
+	TelemetrySink(File csvFile, File binaryFile, int everyTicks) throws IOException {
+		this.everyTicks = Math.max(1, everyTicks);
+		csv = FileChannel.open(csvFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		binary = FileChannel.open(binaryFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		writeFully(csv, ByteBuffer.wrap(
+				"tick,carnivores,herbivores,carnivoreEnergy,herbivoreEnergy,poisoned,births,deaths\n"
+						.getBytes(StandardCharsets.US_ASCII)));
+		ByteBuffer header = ByteBuffer.allocate(8);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.flip();
+		writeFully(binary, header);
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeBatches();
+			}
+		}, "Telemetry");
+		writer.setDaemon(true);
+		writer.start();
+
+		closeOnExit = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				close();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(closeOnExit);
+	}
+
+	/**
+	 * Adds a row, from the thread running the world. Never waits for the
+	 * writer.
+	 *
+	 * @param tick
+	 *            the tick of the world's clock
+	 * @param carnivores
+	 *            number of carnivores
+	 * @param herbivores
+	 *            number of herbivores
+	 * @param carnivoreEnergy
+	 *            mean energy of the carnivores, 0 if there are none
+	 * @param herbivoreEnergy
+	 *            mean energy of the herbivores, 0 if there are none
+	 * @param poisoned
+	 *            fraction of all life forms that are poisoned
+	 * @param births
+	 *            life forms born since the last row
+	 * @param deaths
+	 *            life forms that died since the last row
+	 */
+	public synchronized void record(long tick, int carnivores, int herbivores, float carnivoreEnergy,
+			float herbivoreEnergy, float poisoned, int births, int deaths) {
+		if (closed) {
+			return;
+		}
+		int row = batch.rows++;
+		batch.ticks[row] = tick;
+		batch.carnivores[row] = carnivores;
+		batch.herbivores[row] = herbivores;
+		batch.carnivoreEnergy[row] = carnivoreEnergy;
+		batch.herbivoreEnergy[row] = herbivoreEnergy;
+		batch.poisoned[row] = poisoned;
+		batch.births[row] = births;
+		batch.deaths[row] = deaths;
+		if (batch.rows == ROWS_PER_BATCH) {
+			if (full.offer(batch)) {
+				batch = empty.poll();
+				if (batch == null) {
+					batch = new Batch();
+				}
+			} else {
+				droppedRows += batch.rows;
+				batch.rows = 0;
+			}
+		}
+	}
+
+	/**
+	 * Writes every row still waiting and closes the files. Rows added
+	 * afterwards are ignored.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		// The last rows and the end are waited for, as nothing is running
+		// the world through this sink any more
+		try {
+			if (batch.rows > 0) {
+				full.put(batch);
+			}
+			full.put(END);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			csv.close();
+			binary.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if (droppedRows > 0) {
+			System.out.println("Telemetry fell behind and dropped " + droppedRows + " rows");
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(closeOnExit);
+		} catch (IllegalStateException e) {
+			// Already closing because the application is exiting
+		}
+	}
+
+	// Run by the writer thread, writes each batch to both files in the order
+	// it was queued
+	private void writeBatches() {
+		StringBuilder lines = new StringBuilder();
+		ByteBuffer block = ByteBuffer.allocate(4 + ROWS_PER_BATCH * ROW_BYTES);
+		while (true) {
+			Batch next;
+			try {
+				next = full.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+			if (next == END) {
+				return;
+			}
+			lines.setLength(0);
+			for (int i = 0; i < next.rows; i++) {
+				lines.append(next.ticks[i]).append(',').append(next.carnivores[i]).append(',')
+						.append(next.herbivores[i]).append(',').append(next.carnivoreEnergy[i]).append(',')
+						.append(next.herbivoreEnergy[i]).append(',').append(next.poisoned[i]).append(',')
+						.append(next.births[i]).append(',').append(next.deaths[i]).append('\n');
+			}
+			block.clear();
+			block.putInt(next.rows);
+			for (int i = 0; i < next.rows; i++) {
+				block.putLong(next.ticks[i]);
+			}
+			for (int i = 0; i < next.rows; i++) {
+				block.putInt(next.carnivores[i]);
+			}
+			for (int i = 0; i < next.rows; i++) {
+				block.putInt(next.herbivores[i]);
+			}
+			for (int i = 0; i < next.rows; i++) {
+				block.putFloat(next.carnivoreEnergy[i]);
+			}
+			for (int i = 0; i < next.rows; i++) {
+				block.putFloat(next.herbivoreEnergy[i]);
+			}
+			for (int i = 0; i < next.rows; i++) {
+				block.putFloat(next.poisoned[i]);
+			}
+			for (int i = 0; i < next.rows; i++) {
+				block.putInt(next.births[i]);
+			}
+			for (int i = 0; i < next.rows; i++) {
+				block.putInt(next.deaths[i]);
+			}
+			block.flip();
+			try {
+				writeFully(csv, ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII)));
+				writeFully(binary, block);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			next.rows = 0;
+			empty.add(next);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Works out the binary file written alongside a CSV file, which has the
+	 * same name with the extension .altm.
+	 */
+	public static File binaryFileFor(File csvFile) {
+		String name = csvFile.getName();
+		int dot = name.lastIndexOf('.');
+		return new File(csvFile.getAbsoluteFile().getParentFile(),
+				(dot > 0 ? name.substring(0, dot) : name) + ".altm");
+	}
+
+	// Ticks between rows
+	public int getEveryTicks() {
+		return everyTicks;
+	}
+
+}
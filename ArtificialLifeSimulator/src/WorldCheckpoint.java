@@ -0,0 +1,527 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Saves the complete state of a world to a binary checkpoint file and reads
+ * it back, so a long run can be stopped and carried on later from exactly
+ * where it was. A world read from a checkpoint runs on to give the same
+ * results as the world that was saved, as every random generator is saved
+ * with the entity that owns it.
+ * <p>
+ * A checkpoint is a header followed by one fixed size record for each
+ * carnivore, herbivore, obstacle, food source and den, in that order. The
+ * whole file is built in a single buffer and written through a FileChannel.
+ * Loading reads the whole file into a single buffer and puts the entities
+ * straight back into a new world, without running createWorld. As every
+ * record is the same size, the position of any record is known without
+ * reading those before it, so the records are decoded on all processors at
+ * once.
+ * <p>
+ * What can be worked out again from the saved fields is not saved: handles
+ * are given out afresh (a den holds the index of the herbivore hiding in it
+ * instead), and the grids and scheduled events are rebuilt by the world.
+ * <p>
+ * A checkpoint holds everything that decides what the world goes on to do,
+ * with one exception: inputs queued by the user but not yet applied are not
+ * saved. Whoever saves a world applies them first, as saveCheckpoint in
+ * FileOperation does. Writing a checkpoint never changes the world. The
+ * world's name, its number of threads, its journal, its telemetry and the
+ * dead life forms kept for reuse are not saved either, as none of them
+ * change what the world does.
+ *
+ * @see restoreCheckpoint method in the SimWorld class.
+ */
+public class WorldCheckpoint {
+	// First bytes of every checkpoint, "ALSC"
+	static final int MAGIC = 0x414c5343;
+	// Changed whenever the layout below changes
+	static final int VERSION = 1;
+
+	// Bytes in the header and in the record of each kind of entity
+	static final int HEADER_BYTES = 92;
+	static final int LIFE_FORM_BYTES = 84;
+	static final int OBSTACLE_BYTES = 24;
+	static final int FOOD_BYTES = 44;
+	static final int DEN_BYTES = OBSTACLE_BYTES + 40;
+	// Fewest records read as one piece of work when loading
+	private static final int RECORDS_PER_TASK = 4096;
+
+	// Kinds of record, in the order they are saved, and the bytes in each
+	private static final int CARNIVORE = 0;
+	private static final int HERBIVORE = 1;
+	private static final int OBSTACLE = 2;
+	private static final int FOOD = 3;
+	private static final int DEN = 4;
+	private static final int[] RECORD_BYTES = new int[] { LIFE_FORM_BYTES, LIFE_FORM_BYTES, OBSTACLE_BYTES,
+			FOOD_BYTES, DEN_BYTES };
+
+	// Bits of the flags of a world
+	private static final int WASTELAND = 1;
+	private static final int DISASTER = 1 << 1;
+	private static final int TOGGLE_BREED = 1 << 2;
+	private static final int TOGGLE_DEV = 1 << 3;
+	private static final int CAN_ADD_C = 1 << 4;
+	private static final int CAN_ADD_H = 1 << 5;
+	private static final int CAN_REM_C = 1 << 6;
+	private static final int CAN_REM_H = 1 << 7;
+	// Bits of the flags of a life form
+	private static final int POISONED = 1;
+	private static final int MARKED_POISONED = 1 << 1;
+	private static final int VISABLE = 1 << 2;
+	private static final int DORMANT = 1 << 3;
+	private static final int CAN_RAND_MOVE = 1 << 4;
+	// Bits of the flags of food, obstacles and dens
+	private static final int POISONOUS = 1;
+	private static final int CAN_BE_EATEN = 1 << 1;
+	private static final int PASSABLE = 1;
+	private static final int OCCUPIED = 1 << 1;
+	private static final int READY_TO_HIDE = 1 << 2;
+
+	/**
+	 * Saves a world to a checkpoint file, replacing the file if it exists.
+	 * The world must not be running a tick while it is saved. The checkpoint
+	 * is written to a file alongside first and moved over the old one once
+	 * complete, so a failed save never leaves half a checkpoint behind.
+	 *
+	 * @param world
+	 *            the world to save
+	 * @param file
+	 *            the file to save it to
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void save(SimWorld world, File file) throws IOException {
+		ByteBuffer buffer = write(world);
+		Path target = file.toPath().toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		} finally {
+			channel.close();
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Writes a world into a new buffer in the same form as a checkpoint file,
+	 * for keeping checkpoints in memory.
+	 *
+	 * @param world
+	 *            the world to save, which must not be running a tick
+	 * @return the checkpoint, ready to be read from the start
+	 * @see read method which reads it back.
+	 */
+	static ByteBuffer write(SimWorld world) {
+		EntityStore<Carnivore> carnivores = world.getCarnivoreArray();
+		EntityStore<Herbivore> herbivores = world.getHerbivoreArray();
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + LIFE_FORM_BYTES * (carnivores.size() + herbivores.size())
+				+ OBSTACLE_BYTES * world.getObstacleArray().size() + FOOD_BYTES * world.getFoodArray().size()
+				+ DEN_BYTES * world.getDenArray().size());
+
+		writeHeader(world, buffer);
+		for (Carnivore carnivore : carnivores) {
+			writeLifeForm(carnivore, buffer);
+		}
+		// Index of each herbivore, for the dens they are hiding in
+		IdentityHashMap<ALifeForm, Integer> herbivoreIndexes = new IdentityHashMap<ALifeForm, Integer>();
+		for (int i = 0; i < herbivores.size(); i++) {
+			writeLifeForm(herbivores.get(i), buffer);
+			herbivoreIndexes.put(herbivores.get(i), i);
+		}
+		for (Obstacle obstacle : world.getObstacleArray()) {
+			writeObstacle(obstacle, buffer);
+		}
+		for (FoodSource food : world.getFoodArray()) {
+			writeFood(food, buffer);
+		}
+		for (Den den : world.getDenArray()) {
+			Integer occupant = herbivoreIndexes.get(world.resolve(den.getOccupant()));
+			writeDen(den, occupant == null ? -1 : occupant, buffer);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Reads a world back from a checkpoint file. The world is ready to run
+	 * from the tick it was saved at and must not have createWorld called on
+	 * it.
+	 * <p>
+	 * The file is read into a buffer on the heap rather than memory mapped,
+	 * so nothing is left holding the file once this returns and a checkpoint
+	 * can be saved over the file it was loaded from straight away.
+	 *
+	 * @param file
+	 *            the checkpoint to read
+	 * @return the world saved in the checkpoint
+	 * @throws IOException
+	 *             if the file cannot be read or is not a checkpoint
+	 */
+	public static SimWorld load(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		ByteBuffer buffer;
+		try {
+			if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is not a world checkpoint");
+			}
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new IOException(file + " ended early");
+				}
+			}
+		} finally {
+			channel.close();
+		}
+		buffer.flip();
+		return read(buffer, file.toString());
+	}
+
+	/**
+	 * Builds a world from a checkpoint held in a buffer, read from its
+	 * current position.
+	 *
+	 * @param buffer
+	 *            the checkpoint
+	 * @param name
+	 *            name of where the checkpoint came from, for error messages
+	 * @return the world saved in the checkpoint
+	 * @throws IOException
+	 *             if the buffer does not hold a whole checkpoint
+	 */
+	static SimWorld read(ByteBuffer buffer, String name) throws IOException {
+		if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+			throw new IOException(name + " is not a world checkpoint");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException(name + " is a version " + version + " checkpoint, only version " + VERSION
+					+ " can be read");
+		}
+		SimWorld world = new SimWorld(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+				buffer.getInt(), buffer.getInt());
+		world.setSeed(buffer.getLong());
+		long nextEntityStream = buffer.getLong();
+		long tick = buffer.getLong();
+		world.setDisasterTick(buffer.getLong());
+		world.setCountDown(buffer.getInt());
+		int flags = buffer.getInt();
+		world.setWasteland((flags & WASTELAND) != 0);
+		world.setDisaster((flags & DISASTER) != 0);
+		world.setToggleBreed((flags & TOGGLE_BREED) != 0);
+		world.setToggleDev((flags & TOGGLE_DEV) != 0);
+		world.setCanAddC((flags & CAN_ADD_C) != 0);
+		world.setCanAddH((flags & CAN_ADD_H) != 0);
+		world.setCanRemC((flags & CAN_REM_C) != 0);
+		world.setCanRemH((flags & CAN_REM_H) != 0);
+		int carnivores = buffer.getInt();
+		int herbivores = buffer.getInt();
+		int obstacles = buffer.getInt();
+		int food = buffer.getInt();
+		int dens = buffer.getInt();
+		if (carnivores < 0 || herbivores < 0 || obstacles < 0 || food < 0 || dens < 0
+				|| buffer.remaining() != (long) LIFE_FORM_BYTES * (carnivores + herbivores)
+						+ (long) OBSTACLE_BYTES * obstacles + (long) FOOD_BYTES * food + (long) DEN_BYTES * dens) {
+			throw new IOException(name + " is not a complete world checkpoint");
+		}
+
+		// Read every record in parallel, each straight from where it is in
+		// the buffer
+		int offset = buffer.position();
+		Object[][] entities = new Object[][] { new Carnivore[carnivores], new Herbivore[herbivores],
+				new Obstacle[obstacles], new FoodSource[food], new Den[dens] };
+		int[] occupants = new int[dens];
+		RecordReader[] readers = new RecordReader[entities.length];
+		for (int kind = 0; kind < entities.length; kind++) {
+			readers[kind] = new RecordReader(world, buffer, kind, offset, entities[kind], occupants, 0,
+					entities[kind].length);
+			offset += RECORD_BYTES[kind] * entities[kind].length;
+		}
+		ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(readers);
+			}
+		});
+
+		// Then put them into the world in order, which gives the life forms
+		// their handles
+		for (Object carnivore : entities[CARNIVORE]) {
+			world.getCarnivoreArray().add((Carnivore) carnivore);
+		}
+		for (Object herbivore : entities[HERBIVORE]) {
+			world.getHerbivoreArray().add((Herbivore) herbivore);
+		}
+		for (Object obstacle : entities[OBSTACLE]) {
+			world.getObstacleArray().add((Obstacle) obstacle);
+		}
+		for (Object foodSource : entities[FOOD]) {
+			world.getFoodArray().add((FoodSource) foodSource);
+		}
+		for (int i = 0; i < dens; i++) {
+			Den den = (Den) entities[DEN][i];
+			if (occupants[i] >= 0 && occupants[i] < herbivores) {
+				den.setOccupant(world.getHerbivoreArray().get(occupants[i]).getHandle());
+			}
+			world.getDenArray().add(den);
+		}
+
+		world.restoreCheckpoint(tick, nextEntityStream);
+		return world;
+	}
+
+	/**
+	 * Reads a run of records of one kind into new entities, splitting the run
+	 * in half until each piece is small enough to read on one thread. Every
+	 * piece reads through its own view of the buffer, so pieces can be read
+	 * at the same time.
+	 */
+	private static class RecordReader extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final SimWorld world;
+		private final ByteBuffer buffer;
+		private final int kind;
+		// Position in the buffer of the first record of this kind
+		private final int offset;
+		// Where the entities read are put, and the herbivore in each den
+		private final Object[] into;
+		private final int[] occupants;
+		// Records read by this piece, from is included and to is not
+		private final int from;
+		private final int to;
+
+		RecordReader(SimWorld world, ByteBuffer buffer, int kind, int offset, Object[] into, int[] occupants,
+				int from, int to) {
+			this.world = world;
+			this.buffer = buffer;
+			this.kind = kind;
+			this.offset = offset;
+			this.into = into;
+			this.occupants = occupants;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > RECORDS_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RecordReader(world, buffer, kind, offset, into, occupants, from, middle),
+						new RecordReader(world, buffer, kind, offset, into, occupants, middle, to));
+				return;
+			}
+			ByteBuffer records = buffer.duplicate();
+			records.position(offset + RECORD_BYTES[kind] * from);
+			for (int i = from; i < to; i++) {
+				// The state of each random generator is set as the record is
+				// read
+				SimRandom rnd = new SimRandom(0);
+				switch (kind) {
+				case CARNIVORE:
+					Carnivore carnivore = new Carnivore(world, rnd);
+					readLifeForm(carnivore, records);
+					into[i] = carnivore;
+					break;
+				case HERBIVORE:
+					Herbivore herbivore = new Herbivore(world, rnd);
+					readLifeForm(herbivore, records);
+					into[i] = herbivore;
+					break;
+				case OBSTACLE:
+					Obstacle obstacle = new Obstacle(rnd);
+					readObstacle(obstacle, records);
+					into[i] = obstacle;
+					break;
+				case FOOD:
+					FoodSource food = new FoodSource(rnd);
+					readFood(food, records);
+					into[i] = food;
+					break;
+				default:
+					Den den = new Den(rnd);
+					occupants[i] = readDen(den, records);
+					into[i] = den;
+					break;
+				}
+			}
+		}
+	}
+
+	// Writes the settings, clock and flags of a world and the number of each
+	// entity in it
+	private static void writeHeader(SimWorld world, ByteBuffer buffer) {
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(world.getWorldWidth());
+		buffer.putInt(world.getWorldHeight());
+		buffer.putInt(world.getNumOfCarnivores());
+		buffer.putInt(world.getNumOfHerbivores());
+		buffer.putInt(world.getNumOfObstacles());
+		buffer.putInt(world.getNumOfFood());
+		buffer.putLong(world.getSeed());
+		buffer.putLong(world.getNextEntityStream());
+		buffer.putLong(world.getClock().getTick());
+		buffer.putLong(world.getDisasterTick());
+		buffer.putInt(world.getCountDown());
+		int flags = 0;
+		flags |= world.isWasteland() ? WASTELAND : 0;
+		flags |= world.isDisaster() ? DISASTER : 0;
+		flags |= world.isToggleBreed() ? TOGGLE_BREED : 0;
+		flags |= world.isToggleDev() ? TOGGLE_DEV : 0;
+		flags |= world.isCanAddC() ? CAN_ADD_C : 0;
+		flags |= world.isCanAddH() ? CAN_ADD_H : 0;
+		flags |= world.isCanRemC() ? CAN_REM_C : 0;
+		flags |= world.isCanRemH() ? CAN_REM_H : 0;
+		buffer.putInt(flags);
+		buffer.putInt(world.getCarnivoreArray().size());
+		buffer.putInt(world.getHerbivoreArray().size());
+		buffer.putInt(world.getObstacleArray().size());
+		buffer.putInt(world.getFoodArray().size());
+		buffer.putInt(world.getDenArray().size());
+	}
+
+	private static void writeLifeForm(ALifeForm lifeForm, ByteBuffer buffer) {
+		buffer.putDouble(lifeForm.getXpos());
+		buffer.putDouble(lifeForm.getYpos());
+		buffer.putDouble(lifeForm.getLastXpos());
+		buffer.putDouble(lifeForm.getLastYpos());
+		buffer.putFloat(lifeForm.getDx());
+		buffer.putFloat(lifeForm.getDy());
+		buffer.putInt(lifeForm.getEnergy());
+		buffer.putInt(lifeForm.getMaxEnergy());
+		buffer.putInt(lifeForm.getRadius());
+		buffer.putInt(lifeForm.getSenseRange());
+		buffer.putInt(lifeForm.getFlavour());
+		buffer.putFloat(lifeForm.getIntelligenceLvl());
+		buffer.putLong(lifeForm.getBirthTick());
+		buffer.putLong(lifeForm.newRnd.getState());
+		int flags = 0;
+		flags |= lifeForm.isPoisoned() ? POISONED : 0;
+		flags |= lifeForm.isMarkedPoisoned() ? MARKED_POISONED : 0;
+		flags |= lifeForm.isVisable() ? VISABLE : 0;
+		flags |= lifeForm.isDormant() ? DORMANT : 0;
+		flags |= lifeForm.isCanRandMove() ? CAN_RAND_MOVE : 0;
+		buffer.putInt(flags);
+	}
+
+	private static void readLifeForm(ALifeForm lifeForm, ByteBuffer buffer) {
+		lifeForm.setXpos(buffer.getDouble());
+		lifeForm.setYpos(buffer.getDouble());
+		lifeForm.setLastXpos(buffer.getDouble());
+		lifeForm.setLastYpos(buffer.getDouble());
+		lifeForm.setDx(buffer.getFloat());
+		lifeForm.setDy(buffer.getFloat());
+		lifeForm.setEnergy(buffer.getInt());
+		lifeForm.setMaxEnergy(buffer.getInt());
+		lifeForm.setRadius(buffer.getInt());
+		lifeForm.setSenseRange(buffer.getInt());
+		lifeForm.setFlavour(buffer.getInt());
+		lifeForm.setIntelligenceLvl(buffer.getFloat());
+		lifeForm.setBirthTick(buffer.getLong());
+		lifeForm.newRnd.setState(buffer.getLong());
+		int flags = buffer.getInt();
+		lifeForm.setPoisoned((flags & POISONED) != 0);
+		lifeForm.setMarkedPoisoned((flags & MARKED_POISONED) != 0);
+		lifeForm.setVisable((flags & VISABLE) != 0);
+		lifeForm.setDormant((flags & DORMANT) != 0);
+		lifeForm.setCanRandMove((flags & CAN_RAND_MOVE) != 0);
+	}
+
+	private static void writeObstacle(Obstacle obstacle, ByteBuffer buffer) {
+		buffer.putInt(obstacle.getxPos());
+		buffer.putInt(obstacle.getyPos());
+		buffer.putInt(obstacle.getCollisionRadius());
+		buffer.putLong(obstacle.newRnd.getState());
+		buffer.putInt(obstacle.isPassable() ? PASSABLE : 0);
+	}
+
+	private static void readObstacle(Obstacle obstacle, ByteBuffer buffer) {
+		obstacle.setxPos(buffer.getInt());
+		obstacle.setyPos(buffer.getInt());
+		obstacle.setCollisionRadius(buffer.getInt());
+		obstacle.newRnd.setState(buffer.getLong());
+		obstacle.setPassable((buffer.getInt() & PASSABLE) != 0);
+	}
+
+	private static void writeFood(FoodSource food, ByteBuffer buffer) {
+		buffer.putInt(food.getxPos());
+		buffer.putInt(food.getyPos());
+		buffer.putInt(food.getRadius());
+		buffer.putInt(food.getCalories());
+		buffer.putLong(food.getRegrowTicks());
+		buffer.putLong(food.getRegrowTick());
+		buffer.putLong(food.newRnd.getState());
+		int flags = 0;
+		flags |= food.isPoisonous() ? POISONOUS : 0;
+		flags |= food.isCanBeEaten() ? CAN_BE_EATEN : 0;
+		buffer.putInt(flags);
+	}
+
+	private static void readFood(FoodSource food, ByteBuffer buffer) {
+		food.setxPos(buffer.getInt());
+		food.setyPos(buffer.getInt());
+		food.setRadius(buffer.getInt());
+		food.setCalories(buffer.getInt());
+		food.setRegrowTicks(buffer.getLong());
+		food.setRegrowTick(buffer.getLong());
+		food.newRnd.setState(buffer.getLong());
+		int flags = buffer.getInt();
+		food.setPoisonous((flags & POISONOUS) != 0);
+		food.setCanBeEaten((flags & CAN_BE_EATEN) != 0);
+	}
+
+	// A den is saved as an obstacle followed by the fields of the den itself
+	private static void writeDen(Den den, int occupant, ByteBuffer buffer) {
+		buffer.putInt(den.getxPos());
+		buffer.putInt(den.getyPos());
+		buffer.putInt(den.getCollisionRadius());
+		buffer.putLong(den.newRnd.getState());
+		int flags = 0;
+		flags |= den.isPassable() ? PASSABLE : 0;
+		flags |= den.isOccupied() ? OCCUPIED : 0;
+		flags |= den.isReadyToHide() ? READY_TO_HIDE : 0;
+		buffer.putInt(flags);
+		buffer.putInt(den.getBodyRadius());
+		buffer.putInt(occupant);
+		buffer.putLong(den.getHideTicks());
+		buffer.putLong(den.getOccupiedTicks());
+		buffer.putLong(den.getReleaseTick());
+		buffer.putLong(den.getFreeTick());
+	}
+
+	// Returns the index of the herbivore hiding in the den, -1 if none
+	private static int readDen(Den den, ByteBuffer buffer) {
+		den.setxPos(buffer.getInt());
+		den.setyPos(buffer.getInt());
+		den.setCollisionRadius(buffer.getInt());
+		den.newRnd.setState(buffer.getLong());
+		int flags = buffer.getInt();
+		den.setPassable((flags & PASSABLE) != 0);
+		den.setOccupied((flags & OCCUPIED) != 0);
+		den.setReadyToHide((flags & READY_TO_HIDE) != 0);
+		den.setBodyRadius(buffer.getInt());
+		int occupant = buffer.getInt();
+		den.setHideTicks(buffer.getLong());
+		den.setOccupiedTicks(buffer.getLong());
+		den.setReleaseTick(buffer.getLong());
+		den.setFreeTick(buffer.getLong());
+		return occupant;
+	}
+
+}
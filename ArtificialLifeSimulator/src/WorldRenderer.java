@@ -0,0 +1,69 @@
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Shows a SimWorld on screen and runs it, either from a timeline on the JavaFX
+ * application thread or on a thread of its own. The world itself holds no
+ * graphics, so any renderer can show any world and the renderer can be changed
+ * while a world is running.
+ * <p>
+ * Whatever runs the world, the GUI only starts, stops and changes it through
+ * the renderer, so it never needs to know which thread the world is on.
+ *
+ * @see WorldView class which shows each entity as its own node.
+ * @see CanvasWorldView class which draws the whole world onto one canvas.
+ */
+public interface WorldRenderer {
+
+	/**
+	 * Sets up the scene showing the world and the timeline which runs it.
+	 *
+	 * @param primaryStage
+	 *            the stage to set the scene containing the simulation upon.
+	 * @param pane
+	 *            a vertical box holding the menubar
+	 * @param hpane
+	 *            another vertical box holding the toolbar
+	 */
+	void runWorldCycles(Stage primaryStage, VBox pane, VBox hpane);
+
+	// Redraws the world as it is now, for use when it has been changed
+	// outside of the timeline
+	void syncWorld();
+
+	// Shows any natural disaster counting down or that has happened
+	void showDisaster();
+
+	// Starts or carries on running the world
+	void play();
+
+	// Stops running the world, leaving it shown as it is
+	void pause();
+
+	// Stops running the world for good, before it is replaced by another,
+	// waiting for any task given to runOnWorld to finish
+	void stop();
+
+	boolean isRunning();
+
+	// How fast the world runs, 1 being one tick every 16 milliseconds
+	double getRate();
+
+	void setRate(double rate);
+
+	// The world shown
+	SimWorld getWorld();
+
+	/**
+	 * Runs a task off the JavaFX application thread, when no tick is running,
+	 * then shows the world as it is afterwards. Anything the GUI does that
+	 * reads or changes more than a single setting of the world is done
+	 * through here.
+	 *
+	 * @param task
+	 *            the task to run, which uses Platform.runLater to show any
+	 *            results in the GUI
+	 */
+	void runOnWorld(Runnable task);
+
+}
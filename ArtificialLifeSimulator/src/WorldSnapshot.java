@@ -0,0 +1,204 @@
+/**
+ * A copy of everything that changes in a SimWorld and is needed to draw it,
+ * taken at the end of a tick. A snapshot is never changed once it has been
+ * taken, so the thread running the world can hand it to the thread drawing the
+ * world without either waiting on the other.
+ * <p>
+ * Each life form is copied with its position before and after the last tick,
+ * so that it can be drawn anywhere between the two. Obstacles, dens and the
+ * positions of food never change once a world has been created, so they are
+ * not copied.
+ *
+ * @see SimulationThread class which takes the snapshots.
+ */
+public final class WorldSnapshot {
+	private final long tick;
+	// Time taken and time between ticks, both from System.nanoTime
+	private final long takenAt;
+	private final long tickNanos;
+	private final Animals carnivores;
+	private final Animals herbivores;
+	// Whether each food source can be eaten, in the same order as the food
+	// array
+	private final boolean[] foodCanBeEaten;
+	private final boolean toggleDev;
+	private final boolean countingDown;
+	private final boolean wasteland;
+
+	private WorldSnapshot(SimWorld world, long takenAt, long tickNanos) {
+		this.tick = world.getClock().getTick();
+		this.takenAt = takenAt;
+		this.tickNanos = tickNanos;
+		this.carnivores = new Animals(world.getCarnivoreArray());
+		this.herbivores = new Animals(world.getHerbivoreArray());
+		this.foodCanBeEaten = new boolean[world.getFoodArray().size()];
+		for (int i = 0; i < foodCanBeEaten.length; i++) {
+			foodCanBeEaten[i] = world.getFoodArray().get(i).isCanBeEaten();
+		}
+		this.toggleDev = world.isToggleDev();
+		this.countingDown = world.isCountingDown();
+		this.wasteland = world.isWasteland();
+	}
+
+	/**
+	 * Copies the state of a world as it is now. Must be called on the thread
+	 * running the world, between ticks.
+	 *
+	 * @param world
+	 *            the world to copy
+	 * @param tickNanos
+	 *            nanoseconds between ticks at the rate the world is running
+	 * @return the snapshot, stamped with the current System.nanoTime
+	 */
+	public static WorldSnapshot take(SimWorld world, long tickNanos) {
+		return new WorldSnapshot(world, System.nanoTime(), tickNanos);
+	}
+
+	/**
+	 * How far the world has got from the last tick towards the next one at a
+	 * given time, used to interpolate positions.
+	 *
+	 * @param now
+	 *            a time from System.nanoTime
+	 * @return 0 when the snapshot was taken, rising to 1 by the time of the
+	 *         next tick and staying there
+	 */
+	public double alphaAt(long now) {
+		if (tickNanos <= 0) {
+			return 1;
+		}
+		return Math.max(0, Math.min(1, (double) (now - takenAt) / tickNanos));
+	}
+
+	/**
+	 * The life forms of one kind in a snapshot, held as one array per field
+	 * with the same index for the same life form.
+	 */
+	public static final class Animals {
+		private final int count;
+		private final long[] handles;
+		private final double[] xs;
+		private final double[] ys;
+		private final double[] lastXs;
+		private final double[] lastYs;
+		private final double[] radii;
+		private final int[] senseRanges;
+		private final boolean[] visible;
+		private final boolean[] markedPoisoned;
+		private final int largestSenseRange;
+
+		private Animals(EntityStore<? extends ALifeForm> lifeForms) {
+			int n = lifeForms.size();
+			count = n;
+			handles = new long[n];
+			xs = new double[n];
+			ys = new double[n];
+			lastXs = new double[n];
+			lastYs = new double[n];
+			radii = new double[n];
+			senseRanges = new int[n];
+			visible = new boolean[n];
+			markedPoisoned = new boolean[n];
+			int largest = 0;
+			for (int i = 0; i < n; i++) {
+				ALifeForm lifeForm = lifeForms.get(i);
+				handles[i] = lifeForm.getHandle();
+				xs[i] = lifeForm.getXpos();
+				ys[i] = lifeForm.getYpos();
+				lastXs[i] = lifeForm.getLastXpos();
+				lastYs[i] = lifeForm.getLastYpos();
+				radii[i] = lifeForm.getRadius();
+				senseRanges[i] = lifeForm.getSenseRange();
+				visible[i] = lifeForm.isVisable();
+				markedPoisoned[i] = lifeForm.isMarkedPoisoned();
+				largest = Math.max(largest, senseRanges[i]);
+			}
+			largestSenseRange = largest;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		// Puts the life forms into a grid by their positions at the last
+		// tick, for finding those on screen
+		public void buildGrid(SpatialGrid grid) {
+			grid.build(xs, ys, radii, count);
+		}
+
+		public long getHandle(int i) {
+			return handles[i];
+		}
+
+		// Position of a life form interpolated between the last two ticks
+		public double xAt(int i, double alpha) {
+			return lastXs[i] + (xs[i] - lastXs[i]) * alpha;
+		}
+
+		public double yAt(int i, double alpha) {
+			return lastYs[i] + (ys[i] - lastYs[i]) * alpha;
+		}
+
+		public double getRadius(int i) {
+			return radii[i];
+		}
+
+		public int getSenseRange(int i) {
+			return senseRanges[i];
+		}
+
+		public boolean isVisible(int i) {
+			return visible[i];
+		}
+
+		public boolean isMarkedPoisoned(int i) {
+			return markedPoisoned[i];
+		}
+
+		public int getLargestSenseRange() {
+			return largestSenseRange;
+		}
+	}
+
+	// Start of getters for WorldSnapshot
+	public long getTick() {
+		return tick;
+	}
+
+	public long getTakenAt() {
+		return takenAt;
+	}
+
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	public Animals getCarnivores() {
+		return carnivores;
+	}
+
+	public Animals getHerbivores() {
+		return herbivores;
+	}
+
+	public int getFoodCount() {
+		return foodCanBeEaten.length;
+	}
+
+	public boolean isFoodCanBeEaten(int i) {
+		return foodCanBeEaten[i];
+	}
+
+	public boolean isToggleDev() {
+		return toggleDev;
+	}
+
+	public boolean isCountingDown() {
+		return countingDown;
+	}
+
+	public boolean isWasteland() {
+		return wasteland;
+	}
+
+}
@@ -0,0 +1,466 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.ImagePattern;
+import javafx.scene.shape.Circle;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * Draws a SimWorld on screen using one JavaFX Circle per entity. The circles
+ * are only a view of the world, at each frame the timeline runs a cycle of the
+ * world and then copies the position and state of every entity onto its
+ * circles.
+ * <p>
+ * Tasks given to runOnWorld are run on a thread of the view's own while the
+ * timeline is held paused, so long tasks such as fast forwarding do not
+ * freeze the GUI. The timeline carries on once they have all finished.
+ * <p>
+ * Also sets the background image of the world and handles the graphics for
+ * developer mode and for natural disasters.
+ *
+ * @see SimWorld class for the simulation itself.
+ */
+public class WorldView implements WorldRenderer {
+	// Static strings to store the location in the resource folder of the
+	// entity graphics, also used by CanvasWorldView
+	static final String wolfURL = "AlternativeWolf.png";
+	static final String sheepURL = "SheepEatingGrassforLifeSim.png";
+	static final String obstacleURL = "DarkTreeSmaller.png";
+	static final String foodURL = "LongGrassSmaller.png";
+	static final String pfoodURL = "BerryBush.png";
+	static final String denURL = "ShelterforLifeSim.png";
+	static final String grassURL = "GrassBackgroundforLifeSim.png";
+	static final String wastelandURL = "WastelandBackgroundforLifeSim.png";
+
+	private SimWorld world;
+	private Group root;
+	private Scene scene;
+	private Timeline circleTimeLine = new Timeline();
+	private Circle blastRadius;
+	private boolean isWastelandShown = false;
+	private ImagePattern backgroundImage = AssetCache.getPattern(grassURL);
+
+	// Circles drawn for each life form, keyed by the handle of the life form
+	// they show so that no circle is kept for a life form once it has gone
+	private HashMap<Long, Circle> lifeFormBodies = new HashMap<Long, Circle>();
+	private HashMap<Long, Circle> senseRadii = new HashMap<Long, Circle>();
+	// Bodies of life forms that have gone, left hidden in the group to be
+	// reused for new life forms, kept by the url of their image
+	private HashMap<String, ArrayList<Circle>> spareBodies = new HashMap<String, ArrayList<Circle>>();
+	// Sense radii are only in the scene in developer mode, inside a group of
+	// their own behind everything else. Those no longer shown are kept out of
+	// the scene to be reused
+	private Group senseLayer = new Group();
+	private ArrayList<Circle> spareSenseRadii = new ArrayList<Circle>();
+	private boolean isDevModeShown = false;
+	// Circles drawn for each food source, in the same order as the food array
+	private ArrayList<Circle> foodBodies = new ArrayList<Circle>();
+
+	// Runs the tasks given to runOnWorld, one at a time in the order given
+	private ExecutorService worldTasks = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "World Tasks");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	// Tasks given to runOnWorld that have not finished, the timeline is held
+	// paused while there are any. Only used on the JavaFX application thread
+	private int pendingTasks = 0;
+	// Whether the timeline is to be played once the tasks have finished
+	private boolean playAfterTasks = false;
+	private boolean stopped = false;
+
+	// Constructor for the view of a world
+	WorldView(SimWorld world) {
+		this.world = world;
+	}
+
+	/**
+	 * Starts loading every image used to draw a world in the background, so
+	 * they are ready by the time the first world is shown.
+	 *
+	 * @see AssetCache class
+	 */
+	public static void preloadImages() {
+		AssetCache.preload(wolfURL, sheepURL, obstacleURL, foodURL, pfoodURL, denURL, grassURL, wastelandURL);
+	}
+
+	/**
+	 * Adds all entities to a Group to be added to the world. Creates the scene
+	 * for the GUI and has a time line which runs cycles of the simulation
+	 * indefinitely
+	 *
+	 * @param primaryStage
+	 *            the stage to set the scene containing the simulation upon.
+	 * @param pane
+	 *            a vertical box used to handle the addition of the menubar and
+	 *            menu items onto the scene
+	 * @param hpane
+	 *            another vertical box to hold the toolbar and the toolbar
+	 *            buttons.
+	 */
+	@Override
+	public void runWorldCycles(Stage primaryStage, VBox pane, VBox hpane) {
+		// Method to handle the addition of all entities to the world
+		root = new Group();
+
+		// Add all obstacles to the world
+		for (Obstacle obstacle : world.getObstacleArray()) {
+			root.getChildren().add(createCircle(obstacle.getxPos(), obstacle.getyPos(),
+					obstacle.getCollisionRadius(), obstacleURL));
+		}
+		// Add all food to the world
+		for (FoodSource food : world.getFoodArray()) {
+			Circle foodBody = createCircle(food.getxPos(), food.getyPos(), food.getRadius(),
+					food.isPoisonous() ? pfoodURL : foodURL);
+			foodBodies.add(foodBody);
+			root.getChildren().add(foodBody);
+		}
+		// Add all dens to the world
+		for (Den den : world.getDenArray()) {
+			root.getChildren().add(createCircle(den.getxPos(), den.getyPos(), den.getBodyRadius(), denURL));
+		}
+		root.getChildren().add(hpane);
+		root.getChildren().add(pane);
+
+		// Add all carnivores and herbivores to the world
+		syncWorld();
+
+		// Create the scene
+		scene = new Scene(root, world.getWorldWidth(), world.getWorldHeight());
+
+		// Handles all operations by the simulation
+		// Each cycle of the timeline is one tick of the world's clock, so the
+		// rate of the timeline only changes how fast the world is run
+		KeyFrame frame = new KeyFrame(Duration.millis(16), new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent t) {
+				// Run the simulation for one tick then redraw it
+				world.runCycle();
+				syncWorld();
+
+				// Show any disaster in the world
+				showDisaster();
+			}
+
+		});
+		// Set the animation to run indefinietely
+		circleTimeLine.setCycleCount(Timeline.INDEFINITE);
+		circleTimeLine.getKeyFrames().add(frame);
+		circleTimeLine.setRate(1.5);
+		// Set up and show the world stage
+		primaryStage.setTitle("Artificial Life Simulator");
+		scene.setFill(this.backgroundImage);
+		primaryStage.setScene(scene);
+		primaryStage.setHeight(world.getWorldHeight());
+		primaryStage.setWidth(world.getWorldWidth());
+		primaryStage.setResizable(false);
+		primaryStage.setX(world.getWorldWidth() / 3);
+		primaryStage.show();
+	}
+
+	/**
+	 * Copies the current state of the world onto the circles in the group.
+	 * Circles are given to new life forms (and sent to the back of the scene
+	 * as to not interfere with menu controls), and hidden for life forms that
+	 * have died or been removed from the world. Hidden circles are reused for
+	 * the next life forms born, so breeding does not keep creating nodes.
+	 * Sense radii are only moved in developer mode.
+	 */
+	@Override
+	public void syncWorld() {
+		// Add or remove the sense radii if developer mode has been toggled
+		if (world.isToggleDev() != isDevModeShown) {
+			toggleDevMode();
+		}
+		for (Carnivore carnivore : world.getCarnivoreArray()) {
+			syncLifeForm(carnivore, wolfURL, Color.CYAN);
+		}
+		for (Herbivore herbivore : world.getHerbivoreArray()) {
+			syncLifeForm(herbivore, sheepURL, Color.DARKVIOLET);
+		}
+
+		// Hide the graphics of any life form no longer in the world, keeping
+		// them for the next life form born
+		Iterator<Map.Entry<Long, Circle>> shown = lifeFormBodies.entrySet().iterator();
+		while (shown.hasNext()) {
+			Map.Entry<Long, Circle> entry = shown.next();
+			if (world.resolve(entry.getKey()) == null) {
+				Circle body = entry.getValue();
+				body.setVisible(false);
+				spareBodies.get(body.getUserData()).add(body);
+				Circle sense = senseRadii.remove(entry.getKey());
+				if (sense != null) {
+					senseLayer.getChildren().remove(sense);
+					spareSenseRadii.add(sense);
+				}
+				shown.remove();
+			}
+		}
+
+		// Hide any food that has been eaten
+		for (int i = 0; i < foodBodies.size(); i++) {
+			foodBodies.get(i).setVisible(world.getFoodArray().get(i).isCanBeEaten());
+		}
+	}
+
+	// Moves the circles of a single life form, giving it circles if the life
+	// form is new to the world
+	private void syncLifeForm(ALifeForm lifeForm, String imageURL, Color senseColour) {
+		Circle body = lifeFormBodies.get(lifeForm.getHandle());
+		if (body == null) {
+			ArrayList<Circle> spares = spareBodies.get(imageURL);
+			if (spares == null) {
+				spares = new ArrayList<Circle>();
+				spareBodies.put(imageURL, spares);
+			}
+			if (spares.isEmpty()) {
+				// Create a new circle and send it to the back of the scene as
+				// to not interfere with menu controls
+				body = createCircle(lifeForm.getXpos(), lifeForm.getYpos(), lifeForm.getRadius(), imageURL);
+				body.setUserData(imageURL);
+				root.getChildren().add(body);
+				body.toBack();
+				// Sense radii stay behind every body
+				if (isDevModeShown) {
+					senseLayer.toBack();
+				}
+			} else {
+				// Reuse the circle of a life form that has gone, which is
+				// already in the group
+				body = spares.remove(spares.size() - 1);
+				body.setRadius(lifeForm.getRadius());
+				body.setStroke(null);
+				body.setStrokeWidth(1);
+			}
+			lifeFormBodies.put(lifeForm.getHandle(), body);
+		}
+		body.setCenterX(lifeForm.getXpos());
+		body.setCenterY(lifeForm.getYpos());
+		if (isDevModeShown) {
+			Circle sense = senseRadii.get(lifeForm.getHandle());
+			if (sense == null) {
+				sense = spareSenseRadii.isEmpty() ? new Circle() : spareSenseRadii.remove(spareSenseRadii.size() - 1);
+				sense.setRadius(lifeForm.getSenseRange());
+				sense.setFill(senseColour);
+				sense.setOpacity(0.3);
+				senseLayer.getChildren().add(sense);
+				senseRadii.put(lifeForm.getHandle(), sense);
+			}
+			sense.setCenterX(lifeForm.getXpos());
+			sense.setCenterY(lifeForm.getYpos());
+		}
+		// Hide herbivores while they are inside a den
+		body.setVisible(lifeForm.isVisable());
+		// Encircle the life form in red once its poison has been detected
+		if (lifeForm.isMarkedPoisoned()) {
+			body.setStroke(Color.DARKRED);
+			body.setStrokeWidth(2);
+		}
+	}
+
+	// Creates a circle filled with the image at the given url, the image is
+	// shared with every other circle showing it
+	private Circle createCircle(double x, double y, double radius, String imageURL) {
+		Circle circle = new Circle(x, y, radius);
+		circle.setFill(AssetCache.getPattern(imageURL));
+		return circle;
+	}
+
+	/**
+	 * Shows the sense radius of each life form as a slightly translucent
+	 * circle, or takes them all out of the scene, to match the developer mode
+	 * of the world. Primarily used for demonstration purposes of how the
+	 * simulation works. Only called when the toggle from the radiobutton in
+	 * the GUIWorld class has changed, so nothing is done for sense radii at
+	 * each frame while developer mode is off.
+	 *
+	 * @see GUIWorld class
+	 */
+	public void toggleDevMode() {
+		isDevModeShown = world.isToggleDev();
+		if (isDevModeShown) {
+			// The circles themselves are given out by syncWorld
+			root.getChildren().add(0, senseLayer);
+		} else {
+			root.getChildren().remove(senseLayer);
+			spareSenseRadii.addAll(senseRadii.values());
+			senseRadii.clear();
+			senseLayer.getChildren().clear();
+		}
+	}
+
+	/**
+	 * Shows the graphics of a natural disaster. While the world counts down a
+	 * red circle reticule is painted on the map, once the countdown is over
+	 * and some entities have been removed the fill of the map background is
+	 * set to a different theme.
+	 *
+	 * @see countDownDisaster in the SimWorld class.
+	 */
+	@Override
+	public void showDisaster() {
+		if (world.isCountingDown() && blastRadius == null) {
+			blastRadius = new Circle(world.getWorldWidth() / 2, world.getWorldHeight() / 2,
+					world.getWorldHeight() / 2);
+			blastRadius.setFill(Color.CRIMSON);
+			blastRadius.setOpacity(0.3);
+			root.getChildren().add(blastRadius);
+		} else if (!world.isCountingDown() && blastRadius != null) {
+			// Remove the painted target circle
+			root.getChildren().remove(blastRadius);
+			blastRadius = null;
+		}
+
+		// Change the background once the disaster has happened
+		if (world.isWasteland() && !isWastelandShown) {
+			setBackgroundImage(wastelandURL);
+			scene.setFill(getBackgroundImage());
+			isWastelandShown = true;
+		}
+	}
+
+	// Start of getters and setters for WorldView
+	@Override
+	public SimWorld getWorld() {
+		return world;
+	}
+
+	// Played straight away, or once the tasks given to runOnWorld finish
+	@Override
+	public void play() {
+		if (pendingTasks > 0) {
+			playAfterTasks = true;
+			return;
+		}
+		circleTimeLine.play();
+	}
+
+	@Override
+	public void pause() {
+		playAfterTasks = false;
+		circleTimeLine.pause();
+	}
+
+	// Stops the timeline, and waits for any task given to runOnWorld to
+	// finish so that the world can safely be used elsewhere afterwards
+	@Override
+	public void stop() {
+		stopped = true;
+		circleTimeLine.stop();
+		worldTasks.shutdown();
+		boolean interrupted = false;
+		while (!worldTasks.isTerminated()) {
+			try {
+				worldTasks.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// A world held paused only for tasks given to runOnWorld counts as running
+	@Override
+	public boolean isRunning() {
+		if (pendingTasks > 0) {
+			return playAfterTasks;
+		}
+		return circleTimeLine.getStatus() == Animation.Status.RUNNING;
+	}
+
+	@Override
+	public double getRate() {
+		return circleTimeLine.getRate();
+	}
+
+	@Override
+	public void setRate(double rate) {
+		circleTimeLine.setRate(rate);
+	}
+
+	// The timeline is paused so no tick runs alongside the task, which is run
+	// off the JavaFX application thread. The world is redrawn and the timeline
+	// played again back on the JavaFX application thread once it finishes
+	@Override
+	public void runOnWorld(final Runnable task) {
+		if (pendingTasks++ == 0) {
+			playAfterTasks = circleTimeLine.getStatus() == Animation.Status.RUNNING;
+			circleTimeLine.pause();
+		}
+		worldTasks.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} finally {
+					Platform.runLater(new Runnable() {
+						@Override
+						public void run() {
+							finishTask();
+						}
+					});
+				}
+			}
+		});
+	}
+
+	// Called on the JavaFX application thread after each task given to
+	// runOnWorld, shows the world once the last of them has finished
+	private void finishTask() {
+		pendingTasks--;
+		if (pendingTasks > 0 || stopped) {
+			return;
+		}
+		syncWorld();
+		showDisaster();
+		if (playAfterTasks) {
+			circleTimeLine.play();
+		}
+	}
+
+	public Timeline getCircleTimeLine() {
+		return circleTimeLine;
+	}
+
+	public void setCircleTimeLine(Timeline circleTimeLine) {
+		this.circleTimeLine = circleTimeLine;
+	}
+
+	public Circle getBlastRadius() {
+		return blastRadius;
+	}
+
+	public void setBlastRadius(Circle blastRadius) {
+		this.blastRadius = blastRadius;
+	}
+
+	public ImagePattern getBackgroundImage() {
+		return backgroundImage;
+	}
+
+	public void setBackgroundImage(String backgroundImage) {
+		this.backgroundImage = AssetCache.getPattern(backgroundImage);
+	}
+
+}